@@ -0,0 +1,168 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RefreshAdapter包装层的开销:条目数量,条目类型和绑定分发
+ * 条目类型,id和绑定位置直接调用RefreshAdapter使用的{@link RefreshItemDispatcher},带header,footer和emptyView
+ * direct*为直接调用内部适配器的基准,cached=true为缓存数据数量的路径
+ * 运行: ./gradlew :benchmark:jmh
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RefreshAdapterBenchmark {
+    /**
+     * 一次布局大约访问的条目数
+     */
+    private static final int LAYOUT_PASS_ITEMS = 12;
+
+    @Param({"0", "10", "1000", "100000"})
+    public int listSize;
+
+    @Param({"1", "4", "16"})
+    public int viewTypeCount;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private StubAdapter adapter;
+    private RefreshItemCounter counter;
+    private RefreshItemDispatcher dispatcher;
+    private int position;
+
+    @Setup
+    public void setUp() {
+        adapter = new StubAdapter(listSize, viewTypeCount);
+        counter = new RefreshItemCounter(adapter, true, true, true);
+        counter.setCacheEnable(cached);
+        //header,footer和emptyView的类型在内部适配器的类型之外
+        dispatcher = new RefreshItemDispatcher(counter, adapter, viewTypeCount, viewTypeCount + 1, viewTypeCount + 2);
+    }
+
+    @Benchmark
+    public int directItemCount() {
+        return adapter.getDataCount();
+    }
+
+    @Benchmark
+    public int itemCount() {
+        return counter.getItemCount(counter.getDataCount());
+    }
+
+    @Benchmark
+    public int directItemViewType() {
+        return adapter.getDataItemViewType(nextPosition(adapter.getDataCount()));
+    }
+
+    @Benchmark
+    public int itemViewType() {
+        return dispatcher.getItemViewType(nextPosition(counter.getItemCount(counter.getDataCount())));
+    }
+
+    @Benchmark
+    public long directItemId() {
+        return adapter.getDataItemId(nextPosition(adapter.getDataCount()));
+    }
+
+    @Benchmark
+    public long itemId() {
+        return dispatcher.getItemId(nextPosition(counter.getItemCount(counter.getDataCount())));
+    }
+
+    @Benchmark
+    public void directBind(Blackhole blackhole) {
+        int dataCount = adapter.getDataCount();
+        if (dataCount > 0) {
+            adapter.onBindViewHolder(nextPosition(dataCount), blackhole);
+        }
+    }
+
+    @Benchmark
+    public void bind(Blackhole blackhole) {
+        bind(nextPosition(counter.getItemCount(counter.getDataCount())), blackhole);
+    }
+
+    /**
+     * 模拟一次布局:RecyclerView对每个可见条目先取数量和类型再绑定
+     */
+    @Benchmark
+    public void layoutPass(Blackhole blackhole) {
+        for (int i = 0; i < LAYOUT_PASS_ITEMS; i++) {
+            int itemCount = counter.getItemCount(counter.getDataCount());
+            int position = nextPosition(itemCount);
+            blackhole.consume(dispatcher.getItemViewType(position));
+            bind(position, blackhole);
+        }
+    }
+
+    /**
+     * RefreshAdapter.onBindViewHolder只把数据条目交给内部适配器绑定
+     */
+    private void bind(int position, Blackhole blackhole) {
+        int dataPosition = dispatcher.getBindPosition(position);
+        if (dataPosition != RefreshItemDispatcher.NO_POSITION) {
+            adapter.onBindViewHolder(dataPosition, blackhole);
+        }
+    }
+
+    private int nextPosition(int itemCount) {
+        if (itemCount == 0) {
+            return 0;
+        }
+        position += 7;
+        if (position >= itemCount) {
+            position %= itemCount;
+        }
+        return position;
+    }
+
+    /**
+     * 模拟内部适配器,数据保存在List中
+     */
+    private static class StubAdapter implements RefreshItemCounter.Source, RefreshItemDispatcher.Delegate {
+        private final List<String> data;
+        private final int viewTypeCount;
+
+        StubAdapter(int size, int viewTypeCount) {
+            this.data = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                data.add("item " + i);
+            }
+            this.viewTypeCount = viewTypeCount;
+        }
+
+        @Override
+        public int getDataCount() {
+            return data.size();
+        }
+
+        @Override
+        public int getDataItemViewType(int dataPosition) {
+            return dataPosition % viewTypeCount;
+        }
+
+        @Override
+        public long getDataItemId(int dataPosition) {
+            return dataPosition;
+        }
+
+        void onBindViewHolder(int position, Blackhole blackhole) {
+            blackhole.consume(data.get(position));
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LongSparseArray;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * 批量通知,适用于高频推送的数据(比如socket实时消息)
+ * 1.可以在任意线程调用{@link #insert(int, int, Runnable)}等方法,操作先进入队列
+ * 2.每一帧在主线程执行一次:按顺序执行修改数据的Runnable,合并相邻的范围后统一通知适配器,一帧只触发一次布局
+ * 3.{@link #setPauseWhileFling(boolean)} 惯性滑动过程中暂停执行,停止后再一起通知
+ * 4.{@link #changeById(long[], Object)} 按stable id更新,同一帧内同一条目的多个payload合并到一次绑定
+ * 修改数据必须放在Runnable中,保证数据和通知总是在主线程同步变化
+ * <pre>
+ * rv.getBatchedNotifier().insert(0, 1, new Runnable() {
+ *     public void run() {
+ *         list.add(0, message);
+ *     }
+ * });
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class BatchedNotifier {
+    private final RecyclerView mRecyclerView;
+    private final ListUpdateCallback mCallback;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final UpdateRangeMerger mMerger = new UpdateRangeMerger();
+    private final Object mLock = new Object();
+    private ArrayList<PendingOp> mPending = new ArrayList<>();
+    private ArrayList<PendingOp> mFlushing = new ArrayList<>();
+    /**
+     * 按id等待更新的payload,列表中包含null时完整绑定
+     */
+    private LongSparseArray<ArrayList<Object>> mPendingIds = new LongSparseArray<>();
+    private LongSparseArray<ArrayList<Object>> mFlushingIds = new LongSparseArray<>();
+    private boolean isScheduled;
+    private boolean isPauseWhileFling;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isPauseWhileFling && mRecyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING) {
+                synchronized (mLock) {
+                    isScheduled = false;
+                }
+                return;
+            }
+            flush();
+        }
+    };
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(mRecyclerView, mFlushRunnable);
+        }
+    };
+
+    BatchedNotifier(RecyclerView recyclerView, ListUpdateCallback callback) {
+        this.mRecyclerView = recyclerView;
+        this.mCallback = callback;
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_SETTLING && hasPending()) {
+                    schedule();
+                }
+            }
+        });
+    }
+
+    /**
+     * 插入数据
+     *
+     * @param position 数据的位置
+     * @param count
+     * @param apply    修改数据,在主线程执行
+     */
+    public void insert(int position, int count, Runnable apply) {
+        enqueue(new PendingOp(UpdateRangeMerger.INSERT, position, count, null, apply));
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param position 数据的位置
+     * @param count
+     * @param apply    修改数据,在主线程执行
+     */
+    public void remove(int position, int count, Runnable apply) {
+        enqueue(new PendingOp(UpdateRangeMerger.REMOVE, position, count, null, apply));
+    }
+
+    /**
+     * 更新数据
+     *
+     * @param position 数据的位置
+     * @param count
+     * @param payload  局部更新的payload,可以为null
+     * @param apply    修改数据,在主线程执行
+     */
+    public void change(int position, int count, Object payload, Runnable apply) {
+        enqueue(new PendingOp(UpdateRangeMerger.CHANGE, position, count, payload, apply));
+    }
+
+    /**
+     * 按stable id更新数据,数据已经修改好,只需要通知
+     * 在下一帧数据的插入删除之后再查找位置:显示中的条目直接查找,不在显示中的才遍历一次适配器
+     * 同一帧内同一条目相同的payload只通知一次,不同的payload在一次绑定中一起传给内部适配器
+     * 需要内部适配器有stable id
+     *
+     * @param ids
+     * @param payload 局部更新的payload,为null时完整绑定
+     */
+    public void changeById(long[] ids, Object payload) {
+        synchronized (mLock) {
+            for (long id : ids) {
+                ArrayList<Object> payloads = mPendingIds.get(id);
+                if (payloads == null) {
+                    payloads = new ArrayList<>(2);
+                    mPendingIds.put(id, payloads);
+                }
+                if (!payloads.contains(payload)) {
+                    payloads.add(payload);
+                }
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * 设置惯性滑动过程中是否暂停通知
+     *
+     * @param pauseWhileFling
+     * @return
+     */
+    public BatchedNotifier setPauseWhileFling(boolean pauseWhileFling) {
+        this.isPauseWhileFling = pauseWhileFling;
+        return this;
+    }
+
+    /**
+     * 是否还有没有执行的操作
+     *
+     * @return
+     */
+    public boolean hasPending() {
+        synchronized (mLock) {
+            return !mPending.isEmpty() || mPendingIds.size() > 0;
+        }
+    }
+
+    /**
+     * 立即执行队列中的所有操作,必须在主线程调用
+     */
+    public void flush() {
+        ArrayList<PendingOp> ops;
+        LongSparseArray<ArrayList<Object>> ids;
+        synchronized (mLock) {
+            isScheduled = false;
+            ops = mPending;
+            mPending = mFlushing;
+            mFlushing = ops;
+            ids = mPendingIds;
+            mPendingIds = mFlushingIds;
+            mFlushingIds = ids;
+        }
+        if (ops.isEmpty() && ids.size() == 0) {
+            return;
+        }
+        for (int i = 0, size = ops.size(); i < size; i++) {
+            PendingOp op = ops.get(i);
+            if (op.apply != null) {
+                op.apply.run();
+            }
+            switch (op.type) {
+                case UpdateRangeMerger.INSERT:
+                    mMerger.insert(op.position, op.count);
+                    break;
+                case UpdateRangeMerger.REMOVE:
+                    mMerger.remove(op.position, op.count);
+                    break;
+                case UpdateRangeMerger.CHANGE:
+                    mMerger.change(op.position, op.count, op.payload);
+                    break;
+            }
+        }
+        ops.clear();
+        //还没有设置适配器时只修改数据,设置适配器时会读取完整的数据
+        if (mRecyclerView.getAdapter() != null) {
+            mMerger.dispatchTo(mCallback);
+            //插入删除已经通知,ViewHolder的位置是最新的
+            dispatchIdChanges(ids);
+        }
+        mMerger.clear();
+        ids.clear();
+    }
+
+    /**
+     * 查找id对应的数据位置并通知,同一条目的多个payload由RecyclerView合并到一次绑定
+     */
+    private void dispatchIdChanges(LongSparseArray<ArrayList<Object>> ids) {
+        if (ids.size() == 0) {
+            return;
+        }
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (!adapter.hasStableIds()) {
+            return;
+        }
+        RecyclerView.Adapter dataAdapter = adapter;
+        int offset = 0;
+        if (adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            dataAdapter = ((RefreshRecyclerView.RefreshAdapter) adapter).getInternalAdapter();
+            offset = ((RefreshRecyclerView.RefreshAdapter) adapter).getAdapterPosition(0);
+        }
+        int unresolved = 0;
+        int[] positions = new int[ids.size()];
+        for (int i = 0, size = ids.size(); i < size; i++) {
+            RecyclerView.ViewHolder holder = mRecyclerView.findViewHolderForItemId(ids.keyAt(i));
+            int position = holder == null ? RecyclerView.NO_POSITION : holder.getAdapterPosition();
+            positions[i] = position == RecyclerView.NO_POSITION ? RecyclerView.NO_POSITION : position - offset;
+            if (positions[i] == RecyclerView.NO_POSITION) {
+                unresolved++;
+            }
+        }
+        //不在显示中的条目可能在RecyclerView的缓存中,也需要通知
+        for (int position = 0, count = dataAdapter.getItemCount(); unresolved > 0 && position < count; position++) {
+            int index = ids.indexOfKey(dataAdapter.getItemId(position));
+            if (index >= 0 && positions[index] == RecyclerView.NO_POSITION) {
+                positions[index] = position;
+                unresolved--;
+            }
+        }
+        for (int i = 0, size = ids.size(); i < size; i++) {
+            if (positions[i] == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            ArrayList<Object> payloads = ids.valueAt(i);
+            if (payloads.contains(null)) {
+                mCallback.onChanged(positions[i], 1, null);
+            } else {
+                for (int j = 0, count = payloads.size(); j < count; j++) {
+                    mCallback.onChanged(positions[i], 1, payloads.get(j));
+                }
+            }
+        }
+    }
+
+    private void enqueue(PendingOp op) {
+        synchronized (mLock) {
+            mPending.add(op);
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        synchronized (mLock) {
+            if (isScheduled) {
+                return;
+            }
+            isScheduled = true;
+        }
+        //4.1以上在下一帧(Choreographer)执行
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mScheduleRunnable.run();
+        } else {
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+
+    private static class PendingOp {
+        final int type;
+        final int position;
+        final int count;
+        final Object payload;
+        final Runnable apply;
+
+        PendingOp(int type, int position, int count, Object payload, Runnable apply) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.payload = payload;
+            this.apply = apply;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * 列表中嵌套的横向列表(轮播,卡片组)
+ * 1.所有横向列表共享一个RecycledViewPool,外层条目被回收时子条目放回pool,给其他横向列表复用
+ * 2.空闲时预先创建横向列表的ViewHolder {@link #preInflate(RecyclerView, int, int)}
+ * 3.按外层条目的key(stable id或位置)保存每个横向列表的滚动位置,回到该条目时恢复
+ * 4.外层ViewHolder重新绑定同一个key和同一个内容版本时(比如从RecyclerView的缓存中取出),{@link Carousel#bind(long, long)}返回false,可以跳过横向列表的刷新
+ * 使用stable id时notifyItemChanged会用同一个key重新绑定同一个ViewHolder,横向列表的数据变化时必须更新内容版本
+ * <pre>
+ * //onCreateViewHolder
+ * holder.carousel = carouselHelper.setup(holder.innerRecyclerView);
+ * //onBindViewHolder,cardsVersion在卡片数据变化时递增
+ * if (holder.carousel.bind(item.getId(), item.getCardsVersion())) {
+ *     holder.innerAdapter.setData(item.getCards());
+ * }
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class CarouselHelper {
+    private final RecyclerView.RecycledViewPool pool;
+    private final LayoutManagerHelper layoutManagerHelper = new LayoutManagerHelper();
+    /**
+     * 按key排序的滚动位置,value的高32位为位置,低32位为偏移
+     */
+    private long[] keys = new long[16];
+    private long[] values = new long[16];
+    private int size;
+    private final SparseIntArray preInflateCounts = new SparseIntArray();
+    private RecyclerView preInflateParent;
+    private boolean isPreInflating;
+    private final MessageQueue.IdleHandler preInflateHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            RecyclerView.Adapter adapter = preInflateParent == null ? null : preInflateParent.getAdapter();
+            if (adapter == null || preInflateCounts.size() == 0) {
+                preInflateCounts.clear();
+                preInflateParent = null;
+                isPreInflating = false;
+                return false;
+            }
+            //每次空闲只创建一个
+            int viewType = preInflateCounts.keyAt(0);
+            int count = preInflateCounts.valueAt(0);
+            if (count <= 1) {
+                preInflateCounts.removeAt(0);
+            } else {
+                preInflateCounts.put(viewType, count - 1);
+            }
+            pool.putRecycledView(adapter.createViewHolder(preInflateParent, viewType));
+            isPreInflating = preInflateCounts.size() > 0;
+            if (!isPreInflating) {
+                preInflateParent = null;
+            }
+            return isPreInflating;
+        }
+    };
+
+    public CarouselHelper() {
+        this(new RecyclerView.RecycledViewPool());
+    }
+
+    /**
+     * @param pool 横向列表共享的pool
+     */
+    public CarouselHelper(RecyclerView.RecycledViewPool pool) {
+        this.pool = pool;
+    }
+
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return pool;
+    }
+
+    /**
+     * 设置横向列表某个条目类型在共享pool中最多缓存的数量,一般为每个横向列表可见的数量乘以同时可见的横向列表数量
+     *
+     * @param viewType
+     * @param max
+     * @return
+     */
+    public CarouselHelper setMaxRecycledViews(int viewType, int max) {
+        pool.setMaxRecycledViews(viewType, max);
+        return this;
+    }
+
+    /**
+     * 在主线程空闲时预先创建横向列表的ViewHolder放入共享pool,每次空闲只创建一个
+     *
+     * @param carousel 已经设置了适配器的横向列表,用于创建ViewHolder
+     * @param viewType
+     * @param count
+     * @return
+     */
+    public CarouselHelper preInflate(RecyclerView carousel, int viewType, int count) {
+        if (carousel.getAdapter() == null || count <= 0) {
+            return this;
+        }
+        preInflateParent = carousel;
+        preInflateCounts.put(viewType, preInflateCounts.get(viewType) + count);
+        if (!isPreInflating) {
+            isPreInflating = true;
+            Looper.myQueue().addIdleHandler(preInflateHandler);
+        }
+        return this;
+    }
+
+    /**
+     * 取消还没有执行的预创建
+     */
+    public void cancelPreInflate() {
+        preInflateCounts.clear();
+        preInflateParent = null;
+        if (isPreInflating) {
+            isPreInflating = false;
+            Looper.myQueue().removeIdleHandler(preInflateHandler);
+        }
+    }
+
+    /**
+     * 在外层的onCreateViewHolder中调用,设置共享pool,离开窗口时子条目放回pool
+     *
+     * @param recyclerView 横向列表
+     * @return 保存在外层ViewHolder中, 绑定时调用{@link Carousel#bind(long, long)}
+     */
+    public Carousel setup(RecyclerView recyclerView) {
+        recyclerView.setRecycledViewPool(pool);
+        RecyclerView.LayoutManager manager = recyclerView.getLayoutManager();
+        if (manager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) manager).setRecycleChildrenOnDetach(true);
+        }
+        Carousel carousel = new Carousel(recyclerView);
+        recyclerView.addOnAttachStateChangeListener(carousel);
+        return carousel;
+    }
+
+    /**
+     * 删除保存的滚动位置,外层数据被删除时调用
+     *
+     * @param key
+     */
+    public void removeState(long key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * 删除所有保存的滚动位置,外层下拉刷新后调用
+     */
+    public void clearStates() {
+        size = 0;
+    }
+
+    private void putState(long key, int position, int offset) {
+        long value = ((long) position << 32) | (offset & 0xFFFFFFFFL);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        index = ~index;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * 嵌套在外层条目中的一个横向列表
+     */
+    public class Carousel implements View.OnAttachStateChangeListener {
+        private final RecyclerView recyclerView;
+        private long key;
+        private long contentVersion;
+        private boolean isBound;
+
+        Carousel(RecyclerView recyclerView) {
+            this.recyclerView = recyclerView;
+        }
+
+        /**
+         * 在外层的onBindViewHolder中调用,保存原来的key的滚动位置,恢复新的key的滚动位置
+         *
+         * @param key            外层条目的stable id或位置
+         * @param contentVersion 横向列表数据的版本,数据变化时必须改变
+         * @return key或内容版本和上一次绑定的不同时返回true, 需要刷新横向列表的数据
+         */
+        public boolean bind(long key, long contentVersion) {
+            if (isBound && this.key == key) {
+                //同一个条目只是内容变化时保持滚动位置
+                if (this.contentVersion == contentVersion) {
+                    return false;
+                }
+                this.contentVersion = contentVersion;
+                return true;
+            }
+            this.contentVersion = contentVersion;
+            if (isBound) {
+                saveState();
+            }
+            this.key = key;
+            isBound = true;
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            RecyclerView.LayoutManager manager = recyclerView.getLayoutManager();
+            if (index >= 0) {
+                long value = values[index];
+                layoutManagerHelper.scrollToPositionWithOffset(manager, (int) (value >> 32), (int) value);
+            } else if (manager != null) {
+                manager.scrollToPosition(0);
+            }
+            return true;
+        }
+
+        /**
+         * 保存当前key的滚动位置,离开窗口时自动调用
+         */
+        public void saveState() {
+            RecyclerView.LayoutManager manager = recyclerView.getLayoutManager();
+            if (!isBound || manager == null) {
+                return;
+            }
+            int position = layoutManagerHelper.findFirstVisibleItemPosition(manager);
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            View view = manager.findViewByPosition(position);
+            int offset = 0;
+            if (view != null) {
+                offset = manager.canScrollHorizontally()
+                        ? manager.getDecoratedLeft(view) - recyclerView.getPaddingLeft()
+                        : manager.getDecoratedTop(view) - recyclerView.getPaddingTop();
+            }
+            putState(key, position, offset);
+        }
+
+        public RecyclerView getRecyclerView() {
+            return recyclerView;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            //先于子条目被回收保存位置
+            saveState();
+        }
+    }
+}
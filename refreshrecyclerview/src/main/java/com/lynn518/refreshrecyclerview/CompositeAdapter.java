@@ -0,0 +1,458 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 组合适配器,按顺序拼接任意数量的header,子适配器和footer,作为{@link RefreshRecyclerView.RefreshAdapter}的内部适配器使用
+ * 1.每个子适配器的条目类型通过{@link ViewTypeRegistry}映射成全局类型,不会互相冲突,
+ * 同一种子适配器在不同页面得到相同的类型,可以共享RecycledViewPool
+ * 2.子适配器的局部刷新通知会自动加上偏移量后转发
+ * 3.header和footer是只有一个实例的条目,不参与复用
+ * 4.需要stable id时在设置给RefreshAdapter之前调用setHasStableIds(true),子适配器的id转发,所有子适配器的id不能重复
+ * <pre>
+ * CompositeAdapter adapter = new CompositeAdapter()
+ *         .addHeaderView(bannerView)
+ *         .addAdapter(newsAdapter)
+ *         .addFooterView(copyrightView);
+ * rv.setAdapter(new RefreshRecyclerView.RefreshAdapter(adapter, footerView, emptyView));
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class CompositeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private final ViewTypeRegistry registry;
+    private final ArrayList<Section> headers = new ArrayList<>();
+    private final ArrayList<Section> adapters = new ArrayList<>();
+    private final ArrayList<Section> footers = new ArrayList<>();
+    private final ArrayList<Section> sections = new ArrayList<>();
+    private final SparseArray<Section> typeToSection = new SparseArray<>();
+    private final SparseIntArray typeToLocalType = new SparseIntArray();
+    private final ArrayList<RecyclerView> attachedRecyclerViews = new ArrayList<>();
+    private int[] sectionStarts = new int[0];
+    private boolean startsValid;
+    private int itemCount;
+
+    public CompositeAdapter() {
+        this(ViewTypeRegistry.getDefault());
+    }
+
+    public CompositeAdapter(ViewTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 添加header
+     *
+     * @param view
+     * @return
+     */
+    public CompositeAdapter addHeaderView(View view) {
+        Section section = newFixedSection(view);
+        headers.add(section);
+        onSectionAdded(section);
+        return this;
+    }
+
+    /**
+     * 添加footer(在所有子适配器之后,RefreshAdapter的加载更多footer之前)
+     *
+     * @param view
+     * @return
+     */
+    public CompositeAdapter addFooterView(View view) {
+        Section section = newFixedSection(view);
+        footers.add(section);
+        onSectionAdded(section);
+        return this;
+    }
+
+    /**
+     * 添加子适配器,条目类型按适配器的Class区分
+     *
+     * @param adapter
+     * @return
+     */
+    public CompositeAdapter addAdapter(RecyclerView.Adapter adapter) {
+        return addAdapter(adapter, adapter.getClass());
+    }
+
+    /**
+     * 添加子适配器
+     *
+     * @param adapter
+     * @param viewTypeKey 区分条目类型的key,key相同的适配器必须创建相同的ViewHolder
+     * @return
+     */
+    public CompositeAdapter addAdapter(RecyclerView.Adapter adapter, Object viewTypeKey) {
+        Section section = new Section();
+        section.adapter = adapter;
+        section.viewTypeKey = viewTypeKey;
+        section.count = adapter.getItemCount();
+        section.observer = new SectionObserver(section);
+        adapter.registerAdapterDataObserver(section.observer);
+        for (int i = 0, size = attachedRecyclerViews.size(); i < size; i++) {
+            adapter.onAttachedToRecyclerView(attachedRecyclerViews.get(i));
+        }
+        adapters.add(section);
+        onSectionAdded(section);
+        return this;
+    }
+
+    /**
+     * 移除子适配器
+     *
+     * @param adapter
+     * @return
+     */
+    public CompositeAdapter removeAdapter(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < adapters.size(); i++) {
+            Section section = adapters.get(i);
+            if (section.adapter == adapter) {
+                adapter.unregisterAdapterDataObserver(section.observer);
+                for (int j = 0, size = attachedRecyclerViews.size(); j < size; j++) {
+                    adapter.onDetachedFromRecyclerView(attachedRecyclerViews.get(j));
+                }
+                removeSection(adapters, i);
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 移除header或footer
+     *
+     * @param view
+     * @return
+     */
+    public CompositeAdapter removeView(View view) {
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.get(i).holder.itemView == view) {
+                removeSection(headers, i);
+                return this;
+            }
+        }
+        for (int i = 0; i < footers.size(); i++) {
+            if (footers.get(i).holder.itemView == view) {
+                removeSection(footers, i);
+                return this;
+            }
+        }
+        return this;
+    }
+
+    public int getHeaderCount() {
+        return headers.size();
+    }
+
+    public int getFooterCount() {
+        return footers.size();
+    }
+
+    /**
+     * 指定位置是否是header或footer
+     *
+     * @param position
+     * @return
+     */
+    public boolean isFixedViewPosition(int position) {
+        return findSection(position).adapter == null;
+    }
+
+    /**
+     * 获取子适配器在本适配器中的起始位置,子适配器不存在时返回-1
+     *
+     * @param adapter
+     * @return
+     */
+    public int getAdapterStart(RecyclerView.Adapter adapter) {
+        ensureStarts();
+        for (int i = 0, size = sections.size(); i < size; i++) {
+            if (sections.get(i).adapter == adapter) {
+                return sectionStarts[i];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        Section section = typeToSection.get(viewType);
+        if (section == null) {
+            //还没有绑定过该类型的条目(比如空闲时预先创建),通过分配表找到对应的子适配器
+            section = resolveSharedType(viewType);
+        }
+        if (section.adapter == null) {
+            return section.holder;
+        }
+        return section.adapter.onCreateViewHolder(parent, typeToLocalType.get(viewType));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        Section section = findSection(position);
+        if (section.adapter != null) {
+            section.adapter.onBindViewHolder(holder, position - sectionStarts[section.index]);
+        }
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        Section section = findSection(position);
+        if (section.adapter == null) {
+            return section.viewType;
+        }
+        int localType = section.adapter.getItemViewType(position - sectionStarts[section.index]);
+        int index = section.localToType.indexOfKey(localType);
+        if (index >= 0) {
+            return section.localToType.valueAt(index);
+        }
+        int viewType = registry.obtainSharedType(section.viewTypeKey, localType);
+        section.localToType.put(localType, viewType);
+        typeToSection.put(viewType, section);
+        typeToLocalType.put(viewType, localType);
+        return viewType;
+    }
+
+    @Override
+    public int getItemCount() {
+        ensureStarts();
+        return itemCount;
+    }
+
+    /**
+     * header和footer使用按类型保留的id,子适配器没有stable id时返回NO_ID
+     */
+    @Override
+    public long getItemId(int position) {
+        Section section = findSection(position);
+        if (section.adapter == null) {
+            return Long.MIN_VALUE + section.viewType;
+        }
+        if (!section.adapter.hasStableIds()) {
+            return RecyclerView.NO_ID;
+        }
+        return section.adapter.getItemId(position - sectionStarts[section.index]);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        attachedRecyclerViews.add(recyclerView);
+        for (int i = 0, size = adapters.size(); i < size; i++) {
+            adapters.get(i).adapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        attachedRecyclerViews.remove(recyclerView);
+        for (int i = 0, size = adapters.size(); i < size; i++) {
+            adapters.get(i).adapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        Section section = typeToSection.get(holder.getItemViewType());
+        if (section != null && section.adapter != null) {
+            section.adapter.onViewRecycled(holder);
+        }
+    }
+
+    private Section newFixedSection(View view) {
+        Section section = new Section();
+        section.holder = new FixedViewHolder(view);
+        section.viewType = registry.obtainUniqueType();
+        section.count = 1;
+        typeToSection.put(section.viewType, section);
+        return section;
+    }
+
+    /**
+     * 按分配表记录的key找到第一个对应的子适配器
+     */
+    private Section resolveSharedType(int viewType) {
+        Object key = registry.getKey(viewType);
+        if (key != null) {
+            int localType = registry.getLocalType(viewType);
+            for (int i = 0, size = adapters.size(); i < size; i++) {
+                Section section = adapters.get(i);
+                if (key.equals(section.viewTypeKey)) {
+                    section.localToType.put(localType, viewType);
+                    typeToSection.put(viewType, section);
+                    typeToLocalType.put(viewType, localType);
+                    return section;
+                }
+            }
+        }
+        throw new IllegalArgumentException("unknown view type " + viewType);
+    }
+
+    private void onSectionAdded(Section section) {
+        rebuildSections();
+        if (section.count > 0) {
+            notifyItemRangeInserted(sectionStarts[section.index], section.count);
+        }
+    }
+
+    private void removeSection(List<Section> list, int index) {
+        Section section = list.get(index);
+        ensureStarts();
+        int start = sectionStarts[section.index];
+        list.remove(index);
+        if (section.adapter == null) {
+            typeToSection.remove(section.viewType);
+        } else {
+            for (int i = section.localToType.size() - 1; i >= 0; i--) {
+                int viewType = section.localToType.valueAt(i);
+                if (typeToSection.get(viewType) == section) {
+                    typeToSection.remove(viewType);
+                    typeToLocalType.delete(viewType);
+                }
+            }
+            // 同一个key的其他子适配器继续负责创建这些类型
+            for (int i = 0, size = adapters.size(); i < size; i++) {
+                Section other = adapters.get(i);
+                for (int j = 0; j < other.localToType.size(); j++) {
+                    int viewType = other.localToType.valueAt(j);
+                    if (typeToSection.get(viewType) == null) {
+                        typeToSection.put(viewType, other);
+                        typeToLocalType.put(viewType, other.localToType.keyAt(j));
+                    }
+                }
+            }
+        }
+        rebuildSections();
+        if (section.count > 0) {
+            notifyItemRangeRemoved(start, section.count);
+        }
+    }
+
+    private void rebuildSections() {
+        sections.clear();
+        sections.addAll(headers);
+        sections.addAll(adapters);
+        sections.addAll(footers);
+        for (int i = 0, size = sections.size(); i < size; i++) {
+            sections.get(i).index = i;
+        }
+        if (sectionStarts.length != sections.size()) {
+            sectionStarts = new int[sections.size()];
+        }
+        startsValid = false;
+        ensureStarts();
+    }
+
+    private void ensureStarts() {
+        if (startsValid) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0, size = sections.size(); i < size; i++) {
+            sectionStarts[i] = start;
+            start += sections.get(i).count;
+        }
+        itemCount = start;
+        startsValid = true;
+    }
+
+    /**
+     * 二分查找position所在的分段(起始位置不大于position的最后一个分段,数量为0的分段不会被选中)
+     */
+    private Section findSection(int position) {
+        ensureStarts();
+        int low = 0;
+        int high = sections.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (sectionStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return sections.get(low);
+    }
+
+    /**
+     * 子适配器的数据变化,加上偏移量后转发
+     */
+    private class SectionObserver extends RecyclerView.AdapterDataObserver {
+        private final Section section;
+
+        SectionObserver(Section section) {
+            this.section = section;
+        }
+
+        private int start() {
+            ensureStarts();
+            return sectionStarts[section.index];
+        }
+
+        private void updateCount() {
+            section.count = section.adapter.getItemCount();
+            startsValid = false;
+        }
+
+        @Override
+        public void onChanged() {
+            updateCount();
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(start() + positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            int start = start();
+            updateCount();
+            notifyItemRangeInserted(start + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            int start = start();
+            updateCount();
+            notifyItemRangeRemoved(start + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            int start = start();
+            if (itemCount == 1) {
+                notifyItemMoved(start + fromPosition, start + toPosition);
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+    }
+
+    private static class Section {
+        int index;
+        int count;
+        RecyclerView.Adapter adapter;
+        Object viewTypeKey;
+        SectionObserver observer;
+        final SparseIntArray localToType = new SparseIntArray();
+        RecyclerView.ViewHolder holder;
+        int viewType;
+    }
+
+    static class FixedViewHolder extends RecyclerView.ViewHolder {
+        public FixedViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+}
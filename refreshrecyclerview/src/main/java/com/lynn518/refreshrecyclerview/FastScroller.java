@@ -0,0 +1,371 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.SectionIndexer;
+
+/**
+ * 快速滚动条,拖动滑块直接跳到对应的位置,中间的条目不会被绑定
+ * 1.滑块位置和数据位置按估算的行高换算,只和可见的条目有关,10万条数据也是O(1)
+ * 2.跳转使用scrollToPositionWithOffset,只布局目标位置附近的条目
+ * 3.内部适配器实现{@link SectionIndexer}时,拖动过程中在滑块左侧显示分组提示
+ * 4.每次换算都读取当前的数据数量,加载更多追加数据后继续有效
+ * 通过{@link RefreshRecyclerView#setFastScrollEnable(boolean)}开启,或者{@link #attachToRecyclerView(RecyclerView)}直接使用
+ * 只适用于VERTICAL的列表
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class FastScroller extends RecyclerView.ItemDecoration implements RecyclerView.OnItemTouchListener {
+    private static final long HIDE_DELAY = 1500;
+    private final LayoutManagerHelper layoutManagerHelper = new LayoutManagerHelper();
+    private final int thumbWidth;
+    private final int thumbMinHeight;
+    private final int touchWidth;
+    private final int bubbleSize;
+    private final Paint thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF rect = new RectF();
+    private RecyclerView recyclerView;
+    private OnDragListener onDragListener;
+    private boolean isShowing;
+    private boolean isDragging;
+    private float dragFraction;
+    /**
+     * 拖动时列表跳转到的第一条数据,气泡显示它所在的分组
+     */
+    private int dragPosition = RecyclerView.NO_POSITION;
+    private float touchOffset;
+    private int thumbTop;
+    private int thumbHeight;
+    private final Runnable hideRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!isDragging) {
+                isShowing = false;
+                recyclerView.invalidate();
+            }
+        }
+    };
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (dy != 0) {
+                show();
+            }
+        }
+    };
+
+    public FastScroller(Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        thumbWidth = (int) (6 * density);
+        thumbMinHeight = (int) (48 * density);
+        touchWidth = (int) (24 * density);
+        bubbleSize = (int) (64 * density);
+        thumbPaint.setColor(0x99000000);
+        bubblePaint.setColor(0xCC000000);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(28 * density);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * 设置滑块颜色
+     *
+     * @param color
+     * @return
+     */
+    public FastScroller setThumbColor(int color) {
+        thumbPaint.setColor(color);
+        return this;
+    }
+
+    /**
+     * 设置分组提示的背景色
+     *
+     * @param color
+     * @return
+     */
+    public FastScroller setBubbleColor(int color) {
+        bubblePaint.setColor(color);
+        return this;
+    }
+
+    public FastScroller setOnDragListener(OnDragListener onDragListener) {
+        this.onDragListener = onDragListener;
+        return this;
+    }
+
+    /**
+     * 添加到RecyclerView,传null时移除
+     *
+     * @param recyclerView
+     */
+    public void attachToRecyclerView(RecyclerView recyclerView) {
+        if (this.recyclerView == recyclerView) {
+            return;
+        }
+        if (this.recyclerView != null) {
+            this.recyclerView.removeItemDecoration(this);
+            this.recyclerView.removeOnItemTouchListener(this);
+            this.recyclerView.removeOnScrollListener(scrollListener);
+            this.recyclerView.removeCallbacks(hideRunnable);
+        }
+        this.recyclerView = recyclerView;
+        if (recyclerView != null) {
+            recyclerView.addItemDecoration(this);
+            recyclerView.addOnItemTouchListener(this);
+            recyclerView.addOnScrollListener(scrollListener);
+        }
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (!isShowing) {
+            return;
+        }
+        int trackTop = parent.getPaddingTop();
+        int trackHeight = parent.getHeight() - trackTop - parent.getPaddingBottom();
+        float fraction;
+        if (isDragging) {
+            fraction = dragFraction;
+        } else {
+            fraction = computeScrollFraction(parent);
+            if (fraction < 0) {
+                return;
+            }
+        }
+        thumbTop = trackTop + (int) (fraction * (trackHeight - thumbHeight));
+        int right = parent.getWidth() - parent.getPaddingRight();
+        rect.set(right - thumbWidth, thumbTop, right, thumbTop + thumbHeight);
+        c.drawRoundRect(rect, thumbWidth / 2f, thumbWidth / 2f, thumbPaint);
+        if (isDragging) {
+            String section = getSectionText(parent);
+            if (section != null) {
+                float bubbleRight = right - touchWidth;
+                float bubbleTop = Math.max(trackTop, thumbTop + thumbHeight / 2f - bubbleSize);
+                rect.set(bubbleRight - bubbleSize, bubbleTop, bubbleRight, bubbleTop + bubbleSize);
+                c.drawRoundRect(rect, bubbleSize / 2f, bubbleSize / 2f, bubblePaint);
+                float baseline = rect.centerY() - (textPaint.descent() + textPaint.ascent()) / 2;
+                c.drawText(section, rect.centerX(), baseline, textPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+        if (e.getActionMasked() != MotionEvent.ACTION_DOWN || !isShowing) {
+            return isDragging;
+        }
+        int right = rv.getWidth() - rv.getPaddingRight();
+        if (e.getX() >= right - touchWidth && e.getY() >= thumbTop && e.getY() <= thumbTop + thumbHeight) {
+            touchOffset = e.getY() - thumbTop;
+            //从滑块当前的位置开始拖动
+            int range = rv.getHeight() - rv.getPaddingTop() - rv.getPaddingBottom() - thumbHeight;
+            dragFraction = range > 0 ? Math.max(0, Math.min(1, (float) (thumbTop - rv.getPaddingTop()) / range)) : 0;
+            dragPosition = findFirstDataPosition(rv);
+            setDragging(true);
+            rv.getParent().requestDisallowInterceptTouchEvent(true);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView rv, MotionEvent e) {
+        if (!isDragging) {
+            return;
+        }
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                int trackTop = rv.getPaddingTop();
+                int range = rv.getHeight() - trackTop - rv.getPaddingBottom() - thumbHeight;
+                if (range > 0) {
+                    dragFraction = Math.max(0, Math.min(1, (e.getY() - touchOffset - trackTop) / range));
+                    scrollToFraction(rv, dragFraction);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                setDragging(false);
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    public boolean isDragging() {
+        return isDragging;
+    }
+
+    private void setDragging(boolean dragging) {
+        isDragging = dragging;
+        if (dragging) {
+            recyclerView.stopScroll();
+            recyclerView.removeCallbacks(hideRunnable);
+        } else {
+            recyclerView.postDelayed(hideRunnable, HIDE_DELAY);
+        }
+        recyclerView.invalidate();
+        if (onDragListener != null) {
+            onDragListener.onDragStateChanged(dragging);
+        }
+    }
+
+    private void show() {
+        isShowing = true;
+        recyclerView.removeCallbacks(hideRunnable);
+        if (!isDragging) {
+            recyclerView.postDelayed(hideRunnable, HIDE_DELAY);
+        }
+    }
+
+    /**
+     * 根据第一个可见数据条目和它滑出的比例计算滚动比例,同时更新滑块高度,数据太少时返回-1
+     */
+    private float computeScrollFraction(RecyclerView parent) {
+        int dataCount = getDataCount(parent);
+        View first = null;
+        int firstPosition = RecyclerView.NO_POSITION;
+        int totalHeight = 0;
+        int rows = 0;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            View child = parent.getChildAt(i);
+            int position = toDataPosition(parent, parent.getChildAdapterPosition(child));
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            if (first == null || position < firstPosition) {
+                first = child;
+                firstPosition = position;
+            }
+            totalHeight += child.getHeight();
+            rows++;
+        }
+        if (first == null || totalHeight == 0) {
+            return -1;
+        }
+        float rowHeight = (float) totalHeight / rows;
+        int viewportHeight = parent.getHeight() - parent.getPaddingTop() - parent.getPaddingBottom();
+        float visibleRows = viewportHeight / rowHeight;
+        float scrollRange = dataCount - visibleRows;
+        if (scrollRange <= 0) {
+            return -1;
+        }
+        int trackHeight = viewportHeight;
+        thumbHeight = Math.max(thumbMinHeight, (int) (trackHeight * visibleRows / dataCount));
+        float scrolled = firstPosition + (parent.getPaddingTop() - first.getTop()) / rowHeight;
+        return Math.max(0, Math.min(1, scrolled / scrollRange));
+    }
+
+    /**
+     * 第一个可见的数据条目的位置
+     */
+    private static int findFirstDataPosition(RecyclerView parent) {
+        int firstPosition = RecyclerView.NO_POSITION;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            int position = toDataPosition(parent, parent.getChildAdapterPosition(parent.getChildAt(i)));
+            if (position != RecyclerView.NO_POSITION && (firstPosition == RecyclerView.NO_POSITION || position < firstPosition)) {
+                firstPosition = position;
+            }
+        }
+        return firstPosition;
+    }
+
+    /**
+     * 把滚动比例换算成数据位置和偏移后跳转,记录跳转的位置用于显示分组
+     */
+    private void scrollToFraction(RecyclerView parent, float fraction) {
+        int dataCount = getDataCount(parent);
+        if (dataCount == 0 || parent.getChildCount() == 0) {
+            return;
+        }
+        float rowHeight = (float) parent.getChildAt(0).getHeight();
+        int totalHeight = 0;
+        int rows = 0;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            View child = parent.getChildAt(i);
+            if (toDataPosition(parent, parent.getChildAdapterPosition(child)) != RecyclerView.NO_POSITION) {
+                totalHeight += child.getHeight();
+                rows++;
+            }
+        }
+        if (rows > 0 && totalHeight > 0) {
+            rowHeight = (float) totalHeight / rows;
+        }
+        if (rowHeight <= 0) {
+            return;
+        }
+        int viewportHeight = parent.getHeight() - parent.getPaddingTop() - parent.getPaddingBottom();
+        float scrollRange = Math.max(0, dataCount - viewportHeight / rowHeight);
+        float target = fraction * scrollRange;
+        int position = Math.min((int) target, dataCount - 1);
+        int offset = -(int) ((target - position) * rowHeight);
+        dragPosition = position;
+        layoutManagerHelper.scrollToPositionWithOffset(parent.getLayoutManager(), toAdapterPosition(parent, position), offset);
+        parent.invalidate();
+    }
+
+    private String getSectionText(RecyclerView parent) {
+        RecyclerView.Adapter adapter = parent.getAdapter();
+        if (adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            adapter = ((RefreshRecyclerView.RefreshAdapter) adapter).getInternalAdapter();
+        }
+        if (!(adapter instanceof SectionIndexer)) {
+            return null;
+        }
+        SectionIndexer indexer = (SectionIndexer) adapter;
+        int dataCount = getDataCount(parent);
+        if (dataCount == 0 || dragPosition == RecyclerView.NO_POSITION) {
+            return null;
+        }
+        //和scrollToFraction跳转的位置一致
+        int position = Math.min(dragPosition, dataCount - 1);
+        Object[] sections = indexer.getSections();
+        int section = indexer.getSectionForPosition(position);
+        if (sections == null || section < 0 || section >= sections.length || sections[section] == null) {
+            return null;
+        }
+        return sections[section].toString();
+    }
+
+    private static int getDataCount(RecyclerView parent) {
+        RecyclerView.Adapter adapter = parent.getAdapter();
+        if (adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            return ((RefreshRecyclerView.RefreshAdapter) adapter).getDataCount();
+        }
+        return adapter == null ? 0 : adapter.getItemCount();
+    }
+
+    private static int toDataPosition(RecyclerView parent, int position) {
+        RecyclerView.Adapter adapter = parent.getAdapter();
+        if (position != RecyclerView.NO_POSITION && adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            RefreshRecyclerView.RefreshAdapter refreshAdapter = (RefreshRecyclerView.RefreshAdapter) adapter;
+            return refreshAdapter.isDataPosition(position) ? refreshAdapter.getDataPosition(position) : RecyclerView.NO_POSITION;
+        }
+        return position;
+    }
+
+    private static int toAdapterPosition(RecyclerView parent, int dataPosition) {
+        RecyclerView.Adapter adapter = parent.getAdapter();
+        if (adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            return ((RefreshRecyclerView.RefreshAdapter) adapter).getAdapterPosition(dataPosition);
+        }
+        return dataPosition;
+    }
+
+    /**
+     * 拖动状态监听
+     */
+    public interface OnDragListener {
+        void onDragStateChanged(boolean dragging);
+    }
+}
@@ -0,0 +1,463 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 已加载数据的搜索过滤,关键词索引在后台线程增量建立
+ * 1.每条数据按{@link Tokenizer}提供的文字分词(字母和数字连续的部分为一个词,汉字每个字为一个词),按词记录数据的位置
+ * 2.加载更多只索引新的一页 {@link #notifySourceAppended(int)},下拉刷新时重建 {@link #notifySourceChanged()}
+ * 3.查询的每个词按前缀匹配,所有词都匹配的数据才显示,新的查询开始时取消还没有完成的查询
+ * 4.结果和当前显示的数据比较后以插入/删除的范围通知,没有结果时自动显示emptyView
+ * 内部适配器通过{@link #getCount()}和{@link #getItem(int)}读取过滤后的数据,和{@link RefreshRecyclerView#setFilterIndex(FilterIndex)}一起使用
+ * <pre>
+ * filterIndex = new FilterIndex&lt;&gt;(list, new FilterIndex.Tokenizer&lt;News&gt;() {
+ *     public CharSequence getText(News item) {
+ *         return item.getTitle();
+ *     }
+ * });
+ * rv.setFilterIndex(filterIndex);
+ * ...
+ * filterIndex.filter(editText.getText().toString());
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class FilterIndex<T> {
+    private static final int DIFF_MAX_SIZE = 1000;
+    private static final String[] NO_TOKENS = new String[0];
+    private final List<T> source;
+    private final Tokenizer<T> tokenizer;
+    private Executor executor;
+    private Executor callbackExecutor;
+    private ListUpdateCallback callback;
+    /**
+     * 主线程的数据快照和显示中的数据位置,只在发布结果时修改
+     */
+    private final ArrayList<T> items = new ArrayList<>();
+    private int[] visible = new int[0];
+    private String query = "";
+    /**
+     * 最新查询的序号,用于取消过期的查询
+     */
+    private volatile int queryGeneration;
+    /**
+     * 以下只在后台线程访问
+     */
+    private List<T> initialItems;
+    private final ArrayList<T> indexedItems = new ArrayList<>();
+    private final ArrayList<String[]> indexedTokens = new ArrayList<>();
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    private String[] indexedQuery = NO_TOKENS;
+    private int[] indexedVisible = new int[0];
+
+    /**
+     * @param source    完整的数据,只在主线程修改,修改后调用notifySource*
+     * @param tokenizer
+     */
+    public FilterIndex(List<T> source, Tokenizer<T> tokenizer) {
+        this.source = source;
+        this.tokenizer = tokenizer;
+        items.addAll(source);
+        visible = identity(items.size());
+        //第一次在后台执行时再建立索引
+        initialItems = new ArrayList<>(source);
+    }
+
+    /**
+     * 设置建立索引和查询的线程池,默认和差异计算共用一个后台线程,必须是按顺序执行的单线程
+     *
+     * @param executor
+     * @return
+     */
+    public FilterIndex<T> setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 设置发布结果的线程,默认主线程
+     *
+     * @param executor
+     * @return
+     */
+    public FilterIndex<T> setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 设置结果变化的通知,位置为过滤后数据的位置
+     */
+    void setCallback(ListUpdateCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 过滤后的数量
+     *
+     * @return
+     */
+    public int getCount() {
+        return visible.length;
+    }
+
+    /**
+     * 过滤后的数据
+     *
+     * @param position
+     * @return
+     */
+    public T getItem(int position) {
+        return items.get(visible[position]);
+    }
+
+    /**
+     * 过滤后的位置对应的完整数据中的位置
+     *
+     * @param position
+     * @return
+     */
+    public int getSourcePosition(int position) {
+        return visible[position];
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * 是否正在过滤
+     *
+     * @return
+     */
+    public boolean isFiltering() {
+        return query.length() > 0;
+    }
+
+    /**
+     * 按关键词过滤,为空时显示全部数据,结果在后台计算后发布
+     *
+     * @param query
+     */
+    public void filter(String query) {
+        final String text = query == null ? "" : query.trim();
+        this.query = text;
+        final int generation = ++queryGeneration;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureIndexed();
+                String[] tokens = tokenize(text);
+                int[] result = tokens.length == 0 ? identity(indexedItems.size()) : query(tokens, generation);
+                if (result == null) {
+                    //已经有新的查询
+                    return;
+                }
+                final UpdateRangeMerger merger = new UpdateRangeMerger();
+                diffSorted(indexedVisible, result, merger);
+                indexedQuery = tokens;
+                indexedVisible = result;
+                final int[] newVisible = result;
+                getCallbackExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        visible = newVisible;
+                        dispatch(merger);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 完整数据的末尾追加了count条(加载更多),只索引新的数据,匹配当前查询的追加到结果的末尾
+     *
+     * @param count
+     */
+    public void notifySourceAppended(int count) {
+        if (count <= 0) {
+            return;
+        }
+        final List<T> page = new ArrayList<>(source.subList(source.size() - count, source.size()));
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureIndexed();
+                int start = indexedItems.size();
+                IntList matched = new IntList();
+                for (int i = 0, size = page.size(); i < size; i++) {
+                    indexItem(page.get(i));
+                    if (matches(indexedTokens.get(start + i), indexedQuery)) {
+                        matched.add(start + i);
+                    }
+                }
+                final int oldCount = indexedVisible.length;
+                int[] result = Arrays.copyOf(indexedVisible, oldCount + matched.size);
+                System.arraycopy(matched.values, 0, result, oldCount, matched.size);
+                indexedVisible = result;
+                final int[] newVisible = result;
+                final int insertCount = matched.size;
+                getCallbackExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        items.addAll(page);
+                        visible = newVisible;
+                        if (insertCount > 0 && callback != null) {
+                            callback.onInserted(oldCount, insertCount);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 完整数据整体发生了变化(下拉刷新),重建索引后按当前查询重新过滤,和原来的结果比较后通知
+     * 比较时使用equals判断是否为同一条数据
+     */
+    public void notifySourceChanged() {
+        final List<T> copy = new ArrayList<>(source);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureIndexed();
+                final ArrayList<T> oldVisibleItems = new ArrayList<>(indexedVisible.length);
+                for (int position : indexedVisible) {
+                    oldVisibleItems.add(indexedItems.get(position));
+                }
+                indexedItems.clear();
+                indexedTokens.clear();
+                postings.clear();
+                for (int i = 0, size = copy.size(); i < size; i++) {
+                    indexItem(copy.get(i));
+                }
+                int[] result = indexedQuery.length == 0 ? identity(copy.size()) : query(indexedQuery, Integer.MIN_VALUE);
+                final ArrayList<T> newVisibleItems = new ArrayList<>(result.length);
+                for (int position : result) {
+                    newVisibleItems.add(copy.get(position));
+                }
+                indexedVisible = result;
+                final int[] newVisible = result;
+                final RefreshDiff.Result diff = oldVisibleItems.size() > DIFF_MAX_SIZE || newVisibleItems.size() > DIFF_MAX_SIZE
+                        ? null : RefreshDiff.calculate(new RefreshDiff.ListCallback<T>(oldVisibleItems, newVisibleItems) {
+                    @Override
+                    public boolean areItemsTheSame(T oldItem, T newItem) {
+                        return oldItem == null ? newItem == null : oldItem.equals(newItem);
+                    }
+                });
+                getCallbackExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int oldCount = visible.length;
+                        items.clear();
+                        items.addAll(copy);
+                        visible = newVisible;
+                        if (callback == null) {
+                            return;
+                        }
+                        if (diff != null) {
+                            diff.dispatchUpdatesTo(callback);
+                        } else {
+                            //数据太多时不比较,整体替换
+                            if (oldCount > 0) {
+                                callback.onRemoved(0, oldCount);
+                            }
+                            if (newVisible.length > 0) {
+                                callback.onInserted(0, newVisible.length);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void dispatch(UpdateRangeMerger merger) {
+        if (callback != null) {
+            merger.dispatchTo(callback);
+        }
+    }
+
+    /**
+     * 后台线程:建立创建时的数据的索引
+     */
+    private void ensureIndexed() {
+        if (initialItems == null) {
+            return;
+        }
+        for (int i = 0, size = initialItems.size(); i < size; i++) {
+            indexItem(initialItems.get(i));
+        }
+        indexedVisible = identity(initialItems.size());
+        initialItems = null;
+    }
+
+    /**
+     * 后台线程:把一条数据加入索引,同一条数据中重复的词只记录一次
+     */
+    private void indexItem(T item) {
+        int position = indexedItems.size();
+        CharSequence text = item == null ? null : tokenizer.getText(item);
+        String[] tokens = tokenize(text);
+        indexedItems.add(item);
+        indexedTokens.add(tokens);
+        for (String token : tokens) {
+            IntList list = postings.get(token);
+            if (list == null) {
+                list = new IntList();
+                postings.put(token, list);
+            }
+            if (list.size == 0 || list.values[list.size - 1] != position) {
+                list.add(position);
+            }
+        }
+    }
+
+    /**
+     * 后台线程:每个词按前缀取出所有数据位置的并集,再求交集,有新的查询时返回null
+     */
+    private int[] query(String[] tokens, int generation) {
+        BitSet result = null;
+        for (String token : tokens) {
+            if (generation != Integer.MIN_VALUE && generation != queryGeneration) {
+                return null;
+            }
+            BitSet matched = new BitSet(indexedItems.size());
+            for (Map.Entry<String, IntList> entry : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+                IntList list = entry.getValue();
+                for (int i = 0; i < list.size; i++) {
+                    matched.set(list.values[i]);
+                }
+            }
+            if (result == null) {
+                result = matched;
+            } else {
+                result.and(matched);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        int[] positions = new int[result == null ? 0 : result.cardinality()];
+        for (int i = 0, position = positions.length == 0 ? -1 : result.nextSetBit(0); position >= 0; position = result.nextSetBit(position + 1)) {
+            positions[i++] = position;
+        }
+        return positions;
+    }
+
+    /**
+     * 数据的每个查询词都匹配某个词的前缀
+     */
+    static boolean matches(String[] itemTokens, String[] queryTokens) {
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String itemToken : itemTokens) {
+                if (itemToken.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 两个递增的位置数组(同一份数据)的差异,按顺序记录删除和插入
+     */
+    static void diffSorted(int[] oldPositions, int[] newPositions, UpdateRangeMerger merger) {
+        int i = 0;
+        int j = 0;
+        int position = 0;
+        while (i < oldPositions.length || j < newPositions.length) {
+            if (j == newPositions.length || (i < oldPositions.length && oldPositions[i] < newPositions[j])) {
+                merger.remove(position, 1);
+                i++;
+            } else if (i == oldPositions.length || oldPositions[i] > newPositions[j]) {
+                merger.insert(position, 1);
+                position++;
+                j++;
+            } else {
+                position++;
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * 转为小写,字母和数字连续的部分为一个词,汉字每个字为一个词
+     */
+    static String[] tokenize(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return NO_TOKENS;
+        }
+        ArrayList<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            boolean ideograph = c >= '\u4e00' && c <= '\u9fff';
+            if (Character.isLetterOrDigit(c) && !ideograph) {
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                tokens.add(text.subSequence(start, i).toString().toLowerCase(Locale.US));
+                start = -1;
+            }
+            if (ideograph) {
+                tokens.add(String.valueOf(c));
+            }
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    private static int[] identity(int size) {
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    private Executor getExecutor() {
+        return executor != null ? executor : RefreshExecutors.background();
+    }
+
+    private Executor getCallbackExecutor() {
+        return callbackExecutor != null ? callbackExecutor : RefreshExecutors.mainThread();
+    }
+
+    /**
+     * 提供数据中用于搜索的文字,在后台线程调用
+     */
+    public interface Tokenizer<T> {
+        CharSequence getText(T item);
+    }
+
+    /**
+     * 递增的int数组,不装箱
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * 通过Choreographer统计帧间隔和掉帧数,只在{@link #start()}和{@link #stop()}之间统计(一般是滑动过程中)
+ * 4.1以下没有Choreographer,调用方需要先判断系统版本,不能加载这个类
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameMonitor implements Choreographer.FrameCallback {
+    private final long frameIntervalNanos;
+    private final RefreshRecyclerView.OnMetricsListener listener;
+    private boolean isRunning;
+    private long lastFrameTimeNanos;
+
+    /**
+     * @param refreshRate 屏幕刷新率
+     * @param listener
+     */
+    FrameMonitor(float refreshRate, RefreshRecyclerView.OnMetricsListener listener) {
+        this.frameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+        this.listener = listener;
+    }
+
+    void start() {
+        if (isRunning) {
+            return;
+        }
+        isRunning = true;
+        lastFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void stop() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!isRunning) {
+            return;
+        }
+        if (lastFrameTimeNanos != 0) {
+            long interval = frameTimeNanos - lastFrameTimeNanos;
+            int dropped = (int) ((interval + frameIntervalNanos / 2) / frameIntervalNanos) - 1;
+            listener.onFrame(interval, dropped > 0 ? dropped : 0);
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,163 @@
+package com.lynn518.refreshrecyclerview;
+
+/**
+ * 记录耗时分布的直方图,固定大小的数组,记录时不分配内存
+ * 每个2的幂区间再等分成8个桶,统计出的百分位数误差不超过12.5%
+ * 非线程安全,只在主线程记录
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * 记录一个值,负数按0记录
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketIndex(value)]++;
+        count++;
+        total += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * 获取百分位数(所在桶的上界,不超过最大值)
+     *
+     * @param percentile 0-100
+     * @return
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 桶的数量,和{@link #getBucketLowerBound(int)},{@link #getCountAtBucket(int)}一起用于导出原始数据
+     *
+     * @return
+     */
+    public int getBucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    public long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    }
+
+    public long getCountAtBucket(int index) {
+        return counts[index];
+    }
+
+    /**
+     * 合并另一个直方图的数据
+     *
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * 纳秒转换成毫秒输出
+     */
+    @Override
+    public String toString() {
+        return "count=" + count
+                + " mean=" + toMillis(getMean())
+                + " p50=" + toMillis(getValueAtPercentile(50))
+                + " p90=" + toMillis(getValueAtPercentile(90))
+                + " p99=" + toMillis(getValueAtPercentile(99))
+                + " max=" + toMillis(max) + "ms";
+    }
+
+    private static String toMillis(long nanos) {
+        return String.valueOf(nanos / 10000 / 100.0);
+    }
+
+    private long bucketUpperBound(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return getBucketLowerBound(index + 1) - 1;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+}
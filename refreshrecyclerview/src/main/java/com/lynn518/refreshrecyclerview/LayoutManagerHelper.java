@@ -0,0 +1,95 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+/**
+ * 不依赖具体LayoutManager的可见位置查找和滚动
+ * 支持{@link LinearLayoutManager},{@link android.support.v7.widget.GridLayoutManager},{@link StaggeredGridLayoutManager},
+ * 其他LayoutManager按子view的位置计算
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+final class LayoutManagerHelper {
+    private int[] spanPositions;
+
+    /**
+     * 第一个可见条目的位置,没有条目时返回{@link RecyclerView#NO_POSITION}
+     */
+    int findFirstVisibleItemPosition(RecyclerView.LayoutManager manager) {
+        if (manager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) manager).findFirstVisibleItemPosition();
+        }
+        if (manager instanceof StaggeredGridLayoutManager) {
+            //每一列第一个可见条目中最小的
+            int[] positions = obtainSpanPositions((StaggeredGridLayoutManager) manager);
+            ((StaggeredGridLayoutManager) manager).findFirstVisibleItemPositions(positions);
+            int first = RecyclerView.NO_POSITION;
+            for (int position : positions) {
+                if (position != RecyclerView.NO_POSITION && (first == RecyclerView.NO_POSITION || position < first)) {
+                    first = position;
+                }
+            }
+            return first;
+        }
+        int first = RecyclerView.NO_POSITION;
+        for (int i = 0, count = manager.getChildCount(); i < count; i++) {
+            int position = manager.getPosition(manager.getChildAt(i));
+            if (first == RecyclerView.NO_POSITION || position < first) {
+                first = position;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 最后一个可见条目的位置,没有条目时返回{@link RecyclerView#NO_POSITION}
+     */
+    int findLastVisibleItemPosition(RecyclerView.LayoutManager manager) {
+        if (manager instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) manager).findLastVisibleItemPosition();
+        }
+        if (manager instanceof StaggeredGridLayoutManager) {
+            //每一列最后一个可见条目中最大的
+            int[] positions = obtainSpanPositions((StaggeredGridLayoutManager) manager);
+            ((StaggeredGridLayoutManager) manager).findLastVisibleItemPositions(positions);
+            int last = RecyclerView.NO_POSITION;
+            for (int position : positions) {
+                last = Math.max(last, position);
+            }
+            return last;
+        }
+        int last = RecyclerView.NO_POSITION;
+        for (int i = 0, count = manager.getChildCount(); i < count; i++) {
+            View child = manager.getChildAt(i);
+            last = Math.max(last, manager.getPosition(child));
+        }
+        return last;
+    }
+
+    /**
+     * 滚动到指定位置,条目顶部距离列表顶部offset,不支持偏移的LayoutManager只滚动到该位置
+     */
+    void scrollToPositionWithOffset(RecyclerView.LayoutManager manager, int position, int offset) {
+        if (manager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) manager).scrollToPositionWithOffset(position, offset);
+        } else if (manager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) manager).scrollToPositionWithOffset(position, offset);
+        } else {
+            manager.scrollToPosition(position);
+        }
+    }
+
+    /**
+     * 复用保存每一列位置的数组,滑动过程中不分配内存
+     */
+    private int[] obtainSpanPositions(StaggeredGridLayoutManager manager) {
+        int spanCount = manager.getSpanCount();
+        if (spanPositions == null || spanPositions.length != spanCount) {
+            spanPositions = new int[spanCount];
+        }
+        return spanPositions;
+    }
+}
@@ -0,0 +1,16 @@
+package com.lynn518.refreshrecyclerview;
+
+/**
+ * 列表局部更新的回调,位置均为数据的位置
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public interface ListUpdateCallback {
+    void onInserted(int position, int count);
+
+    void onRemoved(int position, int count);
+
+    void onMoved(int fromPosition, int toPosition);
+
+    void onChanged(int position, int count, Object payload);
+}
@@ -0,0 +1,120 @@
+package com.lynn518.refreshrecyclerview;
+
+/**
+ * 上拉加载更多的触发策略
+ * 1.{@link #MODE_IDLE} 滚动停止且最后一个条目可见时触发(默认)
+ * 2.{@link #MODE_PREFETCH} 滚动过程中距离末尾N个条目(或N屏)时提前触发,滑动越快触发越早
+ * 同一页数据只会触发一次,数据数量发生变化后才会再次触发
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class LoadMoreTrigger {
+    public static final int MODE_IDLE = 0;
+    public static final int MODE_PREFETCH = 1;
+    private static final int DEFAULT_PREFETCH_ITEM_COUNT = 5;
+    private static final int DEFAULT_LOOKAHEAD_FRAMES = 20;
+    private int mode = MODE_IDLE;
+    private int prefetchItemCount = DEFAULT_PREFETCH_ITEM_COUNT;
+    private float prefetchScreenCount;
+    private int lookaheadFrames = DEFAULT_LOOKAHEAD_FRAMES;
+    private int triggeredItemCount = -1;
+
+    /**
+     * 滚动过程中判断是否需要提前加载,只在{@link #MODE_PREFETCH}下生效
+     *
+     * @param lastVisiblePosition 最后一个可见条目的位置
+     * @param itemCount           条目总数(包含footer)
+     * @param visibleItemCount    当前可见条目的数量
+     * @param viewportHeight      列表的高度
+     * @param dy                  本帧的滚动距离,用来估算滑动速度
+     * @return 是否需要加载更多
+     */
+    public boolean onScrolled(int lastVisiblePosition, int itemCount, int visibleItemCount, int viewportHeight, int dy) {
+        if (mode != MODE_PREFETCH || dy <= 0 || lastVisiblePosition < 0 || itemCount == triggeredItemCount) {
+            return false;
+        }
+        int remaining = itemCount - 1 - lastVisiblePosition;
+        if (remaining <= getPrefetchDistance(visibleItemCount, viewportHeight, dy)) {
+            triggeredItemCount = itemCount;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 滚动停止时判断是否需要加载,两种模式下都生效,用来兜底提前加载失败的情况
+     *
+     * @param lastVisiblePosition 最后一个可见条目的位置
+     * @param itemCount           条目总数(包含footer)
+     * @param lastDy              停止前最后一帧的滚动距离
+     * @return 是否需要加载更多
+     */
+    public boolean onScrollIdle(int lastVisiblePosition, int itemCount, int lastDy) {
+        if (lastDy > 0 && lastVisiblePosition + 1 == itemCount) {
+            triggeredItemCount = itemCount;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 计算提前加载的距离(条目数),在基础距离上加上按当前速度lookaheadFrames帧内会滑过的条目数
+     */
+    int getPrefetchDistance(int visibleItemCount, int viewportHeight, int dy) {
+        int distance = prefetchScreenCount > 0 ? (int) Math.ceil(prefetchScreenCount * visibleItemCount) : prefetchItemCount;
+        if (viewportHeight > 0 && visibleItemCount > 0) {
+            distance += (int) ((long) dy * lookaheadFrames * visibleItemCount / viewportHeight);
+        }
+        return distance;
+    }
+
+    /**
+     * 重置去重状态,下拉刷新完成后调用
+     */
+    public void reset() {
+        triggeredItemCount = -1;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    public LoadMoreTrigger setMode(int mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * 设置距离末尾多少个条目时提前加载
+     *
+     * @param prefetchItemCount
+     * @return
+     */
+    public LoadMoreTrigger setPrefetchItemCount(int prefetchItemCount) {
+        this.prefetchItemCount = prefetchItemCount;
+        this.prefetchScreenCount = 0;
+        return this;
+    }
+
+    /**
+     * 设置距离末尾多少屏时提前加载,设置后会覆盖{@link #setPrefetchItemCount(int)}
+     *
+     * @param prefetchScreenCount
+     * @return
+     */
+    public LoadMoreTrigger setPrefetchScreenCount(float prefetchScreenCount) {
+        this.prefetchScreenCount = prefetchScreenCount;
+        return this;
+    }
+
+    /**
+     * 设置按滑动速度向前预估的帧数,0表示不考虑滑动速度
+     *
+     * @param lookaheadFrames
+     * @return
+     */
+    public LoadMoreTrigger setLookaheadFrames(int lookaheadFrames) {
+        this.lookaheadFrames = lookaheadFrames;
+        return this;
+    }
+}
@@ -0,0 +1,336 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页数据源,只在内存中保留可见区域附近的若干页数据
+ * 1.加载更多时调用{@link #appendPage(List)},下拉刷新时调用{@link #prependPage(List)}或{@link #clear()}
+ * 2.内存中的数据超过预算时,离可见区域最远的页会被释放,对应位置的{@link #getItem(int)}返回null(占位)
+ * 3.滚动回被释放的页时,自动调用{@link #loadPage(int, int, int, LoadCallback)}重新加载,加载完成后通知刷新对应条目
+ * 内部适配器通过{@link #getItemCount()}和{@link #getItem(int)}获取数据,
+ * 配合{@link RefreshRecyclerView#setPagedDataSource(PagedDataSource)}使用
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public abstract class PagedDataSource<T> {
+    private final ArrayList<Page<T>> pages = new ArrayList<>();
+    private int itemCount;
+    private int residentItemCount;
+    private long residentBytes;
+    private int maxResidentItemCount = Integer.MAX_VALUE;
+    private long maxResidentBytes = Long.MAX_VALUE;
+    private int firstVisiblePage = -1;
+    private int lastVisiblePage = -1;
+    private OnPageReloadListener onPageReloadListener;
+
+    /**
+     * 重新加载被释放的页,可以在任意线程回调callback
+     *
+     * @param pageIndex 页的索引
+     * @param start     页中第一条数据的位置
+     * @param count     页中数据的数量
+     * @param callback  加载完成的回调
+     */
+    protected abstract void loadPage(int pageIndex, int start, int count, LoadCallback<T> callback);
+
+    /**
+     * 计算单条数据占用的内存,默认每条数据记为1,配合{@link #setMaxResidentBytes(long)}使用
+     *
+     * @param item
+     * @return
+     */
+    protected int sizeOf(T item) {
+        return 1;
+    }
+
+    /**
+     * 获取指定位置的数据,所在的页已被释放时返回null并触发重新加载
+     *
+     * @param position
+     * @return
+     */
+    public T getItem(int position) {
+        LoadCallback<T> callback = null;
+        Page<T> page;
+        int pageIndex;
+        synchronized (this) {
+            pageIndex = findPage(position);
+            if (pageIndex < 0) {
+                return null;
+            }
+            page = pages.get(pageIndex);
+            if (page.items != null) {
+                return page.items.get(position - page.start);
+            }
+            if (!page.loading) {
+                page.loading = true;
+                callback = new LoadCallback<>(this, page);
+            }
+        }
+        if (callback != null) {
+            loadPage(pageIndex, page.start, page.count, callback);
+        }
+        return null;
+    }
+
+    public synchronized int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * 指定位置的数据是否在内存中
+     *
+     * @param position
+     * @return
+     */
+    public synchronized boolean isLoaded(int position) {
+        int pageIndex = findPage(position);
+        return pageIndex >= 0 && pages.get(pageIndex).items != null;
+    }
+
+    /**
+     * 在末尾添加一页数据,加载更多完成时调用
+     *
+     * @param items
+     * @return 添加的数据数量
+     */
+    public synchronized int appendPage(List<T> items) {
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+        pages.add(newPage(itemCount, items));
+        itemCount += items.size();
+        trim();
+        return items.size();
+    }
+
+    /**
+     * 在开头插入一页数据,下拉刷新完成时调用
+     *
+     * @param items
+     * @return 插入的数据数量
+     */
+    public synchronized int prependPage(List<T> items) {
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+        int size = items.size();
+        for (Page<T> page : pages) {
+            page.start += size;
+        }
+        pages.add(0, newPage(0, items));
+        itemCount += size;
+        if (firstVisiblePage >= 0) {
+            firstVisiblePage++;
+            lastVisiblePage++;
+        }
+        trim();
+        return size;
+    }
+
+    /**
+     * 清空所有数据
+     */
+    public synchronized void clear() {
+        pages.clear();
+        itemCount = 0;
+        residentItemCount = 0;
+        residentBytes = 0;
+        firstVisiblePage = -1;
+        lastVisiblePage = -1;
+    }
+
+    /**
+     * 可见区域发生变化,释放超出内存预算的页
+     *
+     * @param firstVisiblePosition
+     * @param lastVisiblePosition
+     */
+    public synchronized void onVisibleRangeChanged(int firstVisiblePosition, int lastVisiblePosition) {
+        int first = findPage(firstVisiblePosition);
+        int last = findPage(lastVisiblePosition);
+        if (first < 0 || last < 0 || (first == firstVisiblePage && last == lastVisiblePage)) {
+            return;
+        }
+        firstVisiblePage = first;
+        lastVisiblePage = last;
+        trim();
+    }
+
+    /**
+     * 设置内存中最多保留的数据条数
+     *
+     * @param maxResidentItemCount
+     * @return
+     */
+    public synchronized PagedDataSource<T> setMaxResidentItemCount(int maxResidentItemCount) {
+        this.maxResidentItemCount = maxResidentItemCount;
+        trim();
+        return this;
+    }
+
+    /**
+     * 设置内存中最多保留的数据大小,单位与{@link #sizeOf(Object)}一致
+     *
+     * @param maxResidentBytes
+     * @return
+     */
+    public synchronized PagedDataSource<T> setMaxResidentBytes(long maxResidentBytes) {
+        this.maxResidentBytes = maxResidentBytes;
+        trim();
+        return this;
+    }
+
+    public synchronized int getResidentItemCount() {
+        return residentItemCount;
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public void setOnPageReloadListener(OnPageReloadListener onPageReloadListener) {
+        this.onPageReloadListener = onPageReloadListener;
+    }
+
+    private Page<T> newPage(int start, List<T> items) {
+        Page<T> page = new Page<>();
+        page.start = start;
+        page.count = items.size();
+        page.items = new ArrayList<>(items);
+        page.bytes = sizeOf(page.items);
+        residentItemCount += page.count;
+        residentBytes += page.bytes;
+        return page;
+    }
+
+    private long sizeOf(List<T> items) {
+        long bytes = 0;
+        for (int i = 0, size = items.size(); i < size; i++) {
+            bytes += sizeOf(items.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * 二分查找position所在的页
+     */
+    private int findPage(int position) {
+        if (position < 0 || position >= itemCount) {
+            return -1;
+        }
+        int low = 0;
+        int high = pages.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pages.get(mid).start <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 超出预算时,依次释放离可见区域最远的页,可见的页不会被释放
+     */
+    private void trim() {
+        while (residentItemCount > maxResidentItemCount || residentBytes > maxResidentBytes) {
+            int farthest = -1;
+            int farthestDistance = -1;
+            for (int i = 0, size = pages.size(); i < size; i++) {
+                if (pages.get(i).items == null) {
+                    continue;
+                }
+                int distance = distanceToVisible(i);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthestDistance <= 0) {
+                return;
+            }
+            Page<T> page = pages.get(farthest);
+            page.items = null;
+            residentItemCount -= page.count;
+            residentBytes -= page.bytes;
+        }
+    }
+
+    /**
+     * 页到可见区域的距离(页数),还没有可见区域时以最后一页为可见的页
+     */
+    private int distanceToVisible(int pageIndex) {
+        if (firstVisiblePage < 0) {
+            return pages.size() - 1 - pageIndex;
+        }
+        if (pageIndex < firstVisiblePage) {
+            return firstVisiblePage - pageIndex;
+        }
+        if (pageIndex > lastVisiblePage) {
+            return pageIndex - lastVisiblePage;
+        }
+        return 0;
+    }
+
+    private void onPageLoaded(Page<T> page, List<T> items) {
+        int start;
+        int count;
+        synchronized (this) {
+            //失败或者页已经被清空时也要清除加载状态,否则再也不会重新加载
+            page.loading = false;
+            int pageIndex = findPage(page.start);
+            if (pageIndex < 0 || pages.get(pageIndex) != page) {
+                return;
+            }
+            if (items == null || items.size() != page.count || page.items != null) {
+                return;
+            }
+            page.items = new ArrayList<>(items);
+            page.bytes = sizeOf(page.items);
+            residentItemCount += page.count;
+            residentBytes += page.bytes;
+            start = page.start;
+            count = page.count;
+            trim();
+        }
+        if (onPageReloadListener != null) {
+            onPageReloadListener.onPageReloaded(start, count);
+        }
+    }
+
+    /**
+     * 重新加载完成的回调,数据数量必须和原来的页一致,失败时传入null
+     */
+    public static class LoadCallback<T> {
+        private final PagedDataSource<T> dataSource;
+        private final Page<T> page;
+
+        LoadCallback(PagedDataSource<T> dataSource, Page<T> page) {
+            this.dataSource = dataSource;
+            this.page = page;
+        }
+
+        public void onPageLoaded(List<T> items) {
+            dataSource.onPageLoaded(page, items);
+        }
+    }
+
+    /**
+     * 被释放的页重新加载完成的监听器,可能在任意线程回调
+     */
+    public interface OnPageReloadListener {
+        void onPageReloaded(int start, int count);
+    }
+
+    private static class Page<T> {
+        int start;
+        int count;
+        long bytes;
+        List<T> items;
+        boolean loading;
+    }
+}
@@ -0,0 +1,305 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 计算新旧两份数据之间的差异(Myers差分算法),得到插入/删除/移动/更新的操作序列
+ * 计算过程不依赖主线程,可以在后台线程执行,得到的{@link Result}在主线程通过{@link Result#dispatchUpdatesTo(ListUpdateCallback)}分发
+ * 相邻的同类操作会被合并成一次范围通知
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class RefreshDiff {
+
+    private RefreshDiff() {
+    }
+
+    /**
+     * 计算差异
+     *
+     * @param callback
+     * @return
+     */
+    public static Result calculate(Callback callback) {
+        int oldSize = callback.getOldSize();
+        int newSize = callback.getNewSize();
+        int[] oldToNew = new int[oldSize];
+        int[] newToOld = new int[newSize];
+        fill(oldToNew, -1);
+        fill(newToOld, -1);
+        findCommonItems(callback, oldSize, newSize, oldToNew, newToOld);
+        findMovedItems(callback, oldToNew, newToOld);
+        Result result = new Result();
+        int[] current = new int[Math.max(oldSize, newSize)];
+        int length = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (oldToNew[i] >= 0) {
+                current[length++] = i;
+            }
+        }
+        for (int i = oldSize - 1; i >= 0; i--) {
+            if (oldToNew[i] < 0) {
+                result.add(Op.REMOVE, i, 1, null);
+            }
+        }
+        for (int position = 0; position < newSize; position++) {
+            int oldPosition = newToOld[position];
+            if (oldPosition < 0) {
+                System.arraycopy(current, position, current, position + 1, length - position);
+                current[position] = -1;
+                length++;
+                result.add(Op.INSERT, position, 1, null);
+            } else if (current[position] != oldPosition) {
+                int from = position + 1;
+                while (current[from] != oldPosition) {
+                    from++;
+                }
+                System.arraycopy(current, position, current, position + 1, from - position);
+                current[position] = oldPosition;
+                result.add(Op.MOVE, from, position, null);
+            }
+        }
+        for (int position = 0; position < newSize; position++) {
+            int oldPosition = newToOld[position];
+            if (oldPosition >= 0 && !callback.areContentsTheSame(oldPosition, position)) {
+                result.add(Op.CHANGE, position, 1, callback.getChangePayload(oldPosition, position));
+            }
+        }
+        return result;
+    }
+
+    private static void fill(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            array[i] = value;
+        }
+    }
+
+    /**
+     * Myers算法求最长公共子序列,只保存每一步用到的那一段V数组,回溯得到匹配关系
+     */
+    private static void findCommonItems(Callback callback, int oldSize, int newSize, int[] oldToNew, int[] newToOld) {
+        int max = oldSize + newSize;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        ArrayList<int[]> trace = new ArrayList<>();
+        int x;
+        int y;
+        found:
+        for (int d = 0; d <= max; d++) {
+            int[] snapshot = new int[2 * d + 3];
+            System.arraycopy(v, offset - d - 1, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+            for (int k = -d; k <= d; k += 2) {
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                y = x - k;
+                while (x < oldSize && y < newSize && callback.areItemsTheSame(x, y)) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= oldSize && y >= newSize) {
+                    break found;
+                }
+            }
+        }
+        x = oldSize;
+        y = newSize;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] snapshot = trace.get(d);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && snapshot[k - 1 + d + 1] < snapshot[k + 1 + d + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = snapshot[prevK + d + 1];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                oldToNew[x] = y;
+                newToOld[y] = x;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            oldToNew[x] = y;
+            newToOld[y] = x;
+        }
+    }
+
+    /**
+     * 不在公共子序列中但{@link Callback#areItemsTheSame(int, int)}的条目视为移动
+     */
+    private static void findMovedItems(Callback callback, int[] oldToNew, int[] newToOld) {
+        for (int newPosition = 0; newPosition < newToOld.length; newPosition++) {
+            if (newToOld[newPosition] >= 0) {
+                continue;
+            }
+            for (int oldPosition = 0; oldPosition < oldToNew.length; oldPosition++) {
+                if (oldToNew[oldPosition] < 0 && callback.areItemsTheSame(oldPosition, newPosition)) {
+                    oldToNew[oldPosition] = newPosition;
+                    newToOld[newPosition] = oldPosition;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 比较新旧数据的回调,位置均为数据的位置
+     */
+    public static abstract class Callback {
+        public abstract int getOldSize();
+
+        public abstract int getNewSize();
+
+        /**
+         * 是否是同一个条目(比如id相同)
+         */
+        public abstract boolean areItemsTheSame(int oldPosition, int newPosition);
+
+        /**
+         * 同一个条目的内容是否相同,不同时会通知更新
+         */
+        public abstract boolean areContentsTheSame(int oldPosition, int newPosition);
+
+        /**
+         * 内容不同时用于局部更新的payload
+         */
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            return null;
+        }
+    }
+
+    /**
+     * 比较两个List的回调,内容默认使用equals比较
+     */
+    public static abstract class ListCallback<T> extends Callback {
+        private final List<T> oldList;
+        private final List<T> newList;
+
+        public ListCallback(List<T> oldList, List<T> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        public abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+        public boolean areContentsTheSame(T oldItem, T newItem) {
+            return oldItem == null ? newItem == null : oldItem.equals(newItem);
+        }
+
+        @Override
+        public int getOldSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+        }
+    }
+
+    /**
+     * 差异计算的结果
+     */
+    public static class Result {
+        private final ArrayList<Op> ops = new ArrayList<>();
+
+        /**
+         * 记录一次操作,和上一次操作相邻时合并
+         */
+        void add(int type, int position, int count, Object payload) {
+            Op last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+            if (last != null && last.type == type && type != Op.MOVE) {
+                if (type == Op.INSERT && position == last.position + last.count) {
+                    last.count += count;
+                    return;
+                }
+                if (type == Op.REMOVE && position + count == last.position) {
+                    last.position = position;
+                    last.count += count;
+                    return;
+                }
+                if (type == Op.CHANGE && position == last.position + last.count && payload == last.payload) {
+                    last.count += count;
+                    return;
+                }
+            }
+            ops.add(new Op(type, position, count, payload));
+        }
+
+        /**
+         * 是否有任何变化
+         */
+        public boolean hasUpdates() {
+            return !ops.isEmpty();
+        }
+
+        /**
+         * 按顺序分发更新操作,必须在主线程调用
+         *
+         * @param callback
+         */
+        public void dispatchUpdatesTo(ListUpdateCallback callback) {
+            for (int i = 0, size = ops.size(); i < size; i++) {
+                Op op = ops.get(i);
+                switch (op.type) {
+                    case Op.INSERT:
+                        callback.onInserted(op.position, op.count);
+                        break;
+                    case Op.REMOVE:
+                        callback.onRemoved(op.position, op.count);
+                        break;
+                    case Op.MOVE:
+                        callback.onMoved(op.position, op.count);
+                        break;
+                    case Op.CHANGE:
+                        callback.onChanged(op.position, op.count, op.payload);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次更新操作,MOVE时count表示目标位置
+     */
+    private static class Op {
+        static final int INSERT = 0;
+        static final int REMOVE = 1;
+        static final int MOVE = 2;
+        static final int CHANGE = 3;
+        final int type;
+        int position;
+        int count;
+        final Object payload;
+
+        Op(int type, int position, int count, Object payload) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.payload = payload;
+        }
+    }
+}
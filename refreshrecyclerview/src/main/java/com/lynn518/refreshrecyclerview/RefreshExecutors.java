@@ -0,0 +1,50 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 后台计算(差异比较,读写缓存等)默认使用的线程池,以及回到主线程的Executor
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+final class RefreshExecutors {
+    private static ExecutorService sBackground;
+    private static Executor sMainThread;
+
+    private RefreshExecutors() {
+    }
+
+    static synchronized Executor background() {
+        if (sBackground == null) {
+            sBackground = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RefreshRecyclerView-background");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 2);
+                    return thread;
+                }
+            });
+        }
+        return sBackground;
+    }
+
+    static synchronized Executor mainThread() {
+        if (sMainThread == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            sMainThread = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    handler.post(command);
+                }
+            };
+        }
+        return sMainThread;
+    }
+}
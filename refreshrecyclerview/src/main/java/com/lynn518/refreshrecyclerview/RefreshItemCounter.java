@@ -0,0 +1,110 @@
+package com.lynn518.refreshrecyclerview;
+
+/**
+ * {@link RefreshRecyclerView.RefreshAdapter}中条目数量和条目类别(header/数据/footer/emptyView)的计算
+ * 不依赖Android,可以直接在JVM上做基准测试
+ * 开启缓存后,数据数量只在{@link #invalidate()}之后重新读取一次
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+class RefreshItemCounter {
+    static final int SLOT_DATA = 0;
+    static final int SLOT_FOOTER = 1;
+    static final int SLOT_EMPTY = 2;
+    static final int SLOT_HEADER = 3;
+    private final Source source;
+    private final boolean headerEnable;
+    private final boolean footerEnable;
+    private final boolean emptyEnable;
+    private boolean cacheEnable;
+    private boolean cacheValid;
+    private int cachedDataCount;
+
+    RefreshItemCounter(Source source, boolean footerEnable, boolean emptyEnable) {
+        this(source, false, footerEnable, emptyEnable);
+    }
+
+    RefreshItemCounter(Source source, boolean headerEnable, boolean footerEnable, boolean emptyEnable) {
+        this.source = source;
+        this.headerEnable = headerEnable;
+        this.footerEnable = footerEnable;
+        this.emptyEnable = emptyEnable;
+    }
+
+    /**
+     * 获取数据的数量
+     */
+    int getDataCount() {
+        if (!cacheEnable) {
+            return source.getDataCount();
+        }
+        if (!cacheValid) {
+            cachedDataCount = source.getDataCount();
+            cacheValid = true;
+        }
+        return cachedDataCount;
+    }
+
+    /**
+     * 获取条目总数,数据为空时只有emptyView一个条目,否则在数据之前加上header,之后加上footer
+     */
+    int getItemCount(int dataCount) {
+        if (dataCount == 0 && emptyEnable) {
+            return 1;
+        }
+        int count = footerEnable ? dataCount + 1 : dataCount;
+        return headerEnable ? count + 1 : count;
+    }
+
+    /**
+     * 第一条数据的位置(有header时为1)
+     */
+    int getDataOffset() {
+        return headerEnable ? 1 : 0;
+    }
+
+    /**
+     * 是否显示emptyView
+     */
+    boolean isEmpty(int dataCount) {
+        return dataCount == 0 && emptyEnable;
+    }
+
+    /**
+     * 获取指定位置的条目类别
+     */
+    int getSlot(int position, int dataCount) {
+        if (dataCount == 0 && emptyEnable) {
+            return SLOT_EMPTY;
+        }
+        if (headerEnable) {
+            if (position == 0) {
+                return SLOT_HEADER;
+            }
+            position--;
+        }
+        if (footerEnable && position == dataCount) {
+            return SLOT_FOOTER;
+        }
+        return SLOT_DATA;
+    }
+
+    void setCacheEnable(boolean cacheEnable) {
+        this.cacheEnable = cacheEnable;
+        this.cacheValid = false;
+    }
+
+    /**
+     * 数据发生变化,下次读取时重新计算
+     */
+    void invalidate() {
+        cacheValid = false;
+    }
+
+    /**
+     * 数据数量的来源,一般是内部适配器
+     */
+    interface Source {
+        int getDataCount();
+    }
+}
@@ -0,0 +1,78 @@
+package com.lynn518.refreshrecyclerview;
+
+/**
+ * {@link RefreshRecyclerView.RefreshAdapter}中按条目类别分发条目类型,id和绑定的位置
+ * header,footer和emptyView使用固定的类型和id,数据条目转换为数据的位置后交给内部适配器
+ * 和{@link RefreshItemCounter}一样不依赖Android,基准测试直接测量这里的代码
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+class RefreshItemDispatcher {
+    static final long ID_HEADER = Long.MIN_VALUE;
+    static final long ID_FOOTER = Long.MIN_VALUE + 1;
+    static final long ID_EMPTY = Long.MIN_VALUE + 2;
+    static final int NO_POSITION = -1;
+    private final RefreshItemCounter counter;
+    private final Delegate delegate;
+    private final int typeHeader;
+    private final int typeFooter;
+    private final int typeEmpty;
+
+    /**
+     * @param counter
+     * @param delegate
+     * @param typeHeader header的条目类型
+     * @param typeFooter footer的条目类型
+     * @param typeEmpty  emptyView的条目类型
+     */
+    RefreshItemDispatcher(RefreshItemCounter counter, Delegate delegate, int typeHeader, int typeFooter, int typeEmpty) {
+        this.counter = counter;
+        this.delegate = delegate;
+        this.typeHeader = typeHeader;
+        this.typeFooter = typeFooter;
+        this.typeEmpty = typeEmpty;
+    }
+
+    int getItemViewType(int position) {
+        switch (counter.getSlot(position, counter.getDataCount())) {
+            case RefreshItemCounter.SLOT_EMPTY:
+                return typeEmpty;
+            case RefreshItemCounter.SLOT_FOOTER:
+                return typeFooter;
+            case RefreshItemCounter.SLOT_HEADER:
+                return typeHeader;
+            default:
+                return delegate.getDataItemViewType(position - counter.getDataOffset());
+        }
+    }
+
+    long getItemId(int position) {
+        switch (counter.getSlot(position, counter.getDataCount())) {
+            case RefreshItemCounter.SLOT_EMPTY:
+                return ID_EMPTY;
+            case RefreshItemCounter.SLOT_FOOTER:
+                return ID_FOOTER;
+            case RefreshItemCounter.SLOT_HEADER:
+                return ID_HEADER;
+            default:
+                return delegate.getDataItemId(position - counter.getDataOffset());
+        }
+    }
+
+    /**
+     * 绑定时使用的数据位置,header,footer和emptyView不需要内部适配器绑定,返回{@link #NO_POSITION}
+     */
+    int getBindPosition(int position) {
+        int dataPosition = position - counter.getDataOffset();
+        return dataPosition >= 0 && dataPosition < counter.getDataCount() ? dataPosition : NO_POSITION;
+    }
+
+    /**
+     * 数据条目的类型和id,一般是内部适配器
+     */
+    interface Delegate {
+        int getDataItemViewType(int dataPosition);
+
+        long getDataItemId(int dataPosition);
+    }
+}
@@ -0,0 +1,140 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.concurrent.FutureTask;
+
+/**
+ * 下拉刷新和加载更多的数据加载器,通过{@link RefreshRecyclerView#setRefreshLoader(RefreshLoader, java.util.concurrent.Executor)}设置
+ * 1.{@link #load(int, Request)}在指定的线程池中执行,{@link #apply(int, Object)}在主线程执行
+ * 2.开始下拉刷新时取消正在进行的刷新和加载更多,被取消或过期的结果直接丢弃,不会修改数据
+ * 3.加载失败时按指数退避重试,重试次数用完后回调{@link #onFailed(int, Exception)}
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public abstract class RefreshLoader<T> {
+    public static final int TYPE_REFRESH = 0;
+    public static final int TYPE_LOAD_MORE = 1;
+    private int maxRetries;
+    private long initialRetryDelay = 1000;
+    private long maxRetryDelay = 30000;
+
+    /**
+     * 加载数据,在后台线程执行,可以通过{@link Request#isCancelled()}提前结束
+     *
+     * @param type    {@link #TYPE_REFRESH} 或 {@link #TYPE_LOAD_MORE}
+     * @param request
+     * @return
+     * @throws Exception
+     */
+    public abstract T load(int type, Request request) throws Exception;
+
+    /**
+     * 在主线程把结果应用到数据中,只有没有过期的结果才会回调
+     *
+     * @param type
+     * @param result
+     * @return 新增数据的数量,传给{@link RefreshRecyclerView#notifyRefreshOkAndDataChange(int)}
+     * 或{@link RefreshRecyclerView#notifyLoadMoreOkAndDataChange(int)}
+     */
+    public abstract int apply(int type, T result);
+
+    /**
+     * 重试次数用完后仍然失败,在主线程回调
+     *
+     * @param type
+     * @param e
+     */
+    public void onFailed(int type, Exception e) {
+    }
+
+    /**
+     * 设置失败后的重试次数,默认不重试
+     *
+     * @param maxRetries
+     * @return
+     */
+    public RefreshLoader<T> setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * 设置重试间隔,每次重试间隔翻倍,不超过最大值
+     *
+     * @param initialDelay 第一次重试的间隔(毫秒)
+     * @param maxDelay     最大间隔(毫秒)
+     * @return
+     */
+    public RefreshLoader<T> setRetryDelay(long initialDelay, long maxDelay) {
+        this.initialRetryDelay = initialDelay;
+        this.maxRetryDelay = maxDelay;
+        return this;
+    }
+
+    int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 第attempt次重试(从1开始)前等待的时间
+     */
+    long getRetryDelay(int attempt) {
+        long delay = initialRetryDelay;
+        for (int i = 1; i < attempt && delay < maxRetryDelay; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, maxRetryDelay);
+    }
+
+    /**
+     * 一次加载请求,由RefreshRecyclerView创建和取消
+     */
+    public static class Request {
+        private final int type;
+        private final int generation;
+        private final int attempt;
+        private volatile boolean isCancelled;
+        private FutureTask<?> task;
+
+        Request(int type, int generation, int attempt) {
+            this.type = type;
+            this.generation = generation;
+            this.attempt = attempt;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * 每次下拉刷新加1,同一次刷新之后的加载更多和刷新本身的值相同
+         */
+        public int getGeneration() {
+            return generation;
+        }
+
+        /**
+         * 第几次重试,第一次加载为0
+         */
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        void setTask(FutureTask<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * 取消请求,正在执行的load会被中断
+         */
+        void cancel() {
+            isCancelled = true;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.util.SparseArray;
+
+/**
+ * 默认的性能统计,把{@link RefreshRecyclerView.OnMetricsListener}的回调汇总成直方图,单位都是纳秒
+ * 1.帧间隔和掉帧数(只统计滑动过程中的帧)
+ * 2.每种条目类型的onCreateViewHolder/onBindViewHolder耗时
+ * 3.下拉刷新/加载更多从触发到notify...OkAndDataChange的耗时
+ * <pre>
+ * RefreshMetrics metrics = new RefreshMetrics();
+ * rv.setOnMetricsListener(metrics);
+ * ...
+ * upload(metrics.dump());
+ * metrics.reset();
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class RefreshMetrics implements RefreshRecyclerView.OnMetricsListener {
+    private final LatencyHistogram frameTime = new LatencyHistogram();
+    private final SparseArray<LatencyHistogram> createTime = new SparseArray<>();
+    private final SparseArray<LatencyHistogram> bindTime = new SparseArray<>();
+    private final LatencyHistogram refreshLatency = new LatencyHistogram();
+    private final LatencyHistogram loadMoreLatency = new LatencyHistogram();
+    private long droppedFrames;
+    private long jankFrames;
+
+    @Override
+    public void onFrame(long frameIntervalNanos, int droppedFrames) {
+        frameTime.record(frameIntervalNanos);
+        if (droppedFrames > 0) {
+            this.droppedFrames += droppedFrames;
+            jankFrames++;
+        }
+    }
+
+    @Override
+    public void onCreateViewHolder(int viewType, long durationNanos) {
+        obtain(createTime, viewType).record(durationNanos);
+    }
+
+    @Override
+    public void onBindViewHolder(int viewType, long durationNanos) {
+        obtain(bindTime, viewType).record(durationNanos);
+    }
+
+    @Override
+    public void onRefreshFinished(long latencyNanos) {
+        refreshLatency.record(latencyNanos);
+    }
+
+    @Override
+    public void onLoadMoreFinished(long latencyNanos) {
+        loadMoreLatency.record(latencyNanos);
+    }
+
+    public LatencyHistogram getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * 获取某种条目类型的创建耗时,没有记录时返回null
+     *
+     * @param viewType
+     * @return
+     */
+    public LatencyHistogram getCreateTime(int viewType) {
+        return createTime.get(viewType);
+    }
+
+    /**
+     * 获取某种条目类型的绑定耗时,没有记录时返回null
+     *
+     * @param viewType
+     * @return
+     */
+    public LatencyHistogram getBindTime(int viewType) {
+        return bindTime.get(viewType);
+    }
+
+    public LatencyHistogram getRefreshLatency() {
+        return refreshLatency;
+    }
+
+    public LatencyHistogram getLoadMoreLatency() {
+        return loadMoreLatency;
+    }
+
+    /**
+     * 掉帧的总数
+     *
+     * @return
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * 发生掉帧的帧数
+     *
+     * @return
+     */
+    public long getJankFrames() {
+        return jankFrames;
+    }
+
+    public void reset() {
+        frameTime.reset();
+        createTime.clear();
+        bindTime.clear();
+        refreshLatency.reset();
+        loadMoreLatency.reset();
+        droppedFrames = 0;
+        jankFrames = 0;
+    }
+
+    /**
+     * 导出为文本,每行一项
+     *
+     * @return
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("frame: ").append(frameTime)
+                .append(" jank=").append(jankFrames)
+                .append(" dropped=").append(droppedFrames).append('\n');
+        for (int i = 0; i < createTime.size(); i++) {
+            builder.append("create[").append(createTime.keyAt(i)).append("]: ").append(createTime.valueAt(i)).append('\n');
+        }
+        for (int i = 0; i < bindTime.size(); i++) {
+            builder.append("bind[").append(bindTime.keyAt(i)).append("]: ").append(bindTime.valueAt(i)).append('\n');
+        }
+        builder.append("refresh: ").append(refreshLatency).append('\n');
+        builder.append("loadMore: ").append(loadMoreLatency).append('\n');
+        return builder.toString();
+    }
+
+    private static LatencyHistogram obtain(SparseArray<LatencyHistogram> histograms, int viewType) {
+        LatencyHistogram histogram = histograms.get(viewType);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(viewType, histogram);
+        }
+        return histogram;
+    }
+}
@@ -1,28 +1,65 @@
 package com.lynn518.refreshrecyclerview;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.GestureDetectorCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.view.WindowManager;
 import android.widget.LinearLayout;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 /**
- * 基于RecyclerView和SwipeRefreshLayout自定义RefreshRecyclerView,只适用于VERTICAL{@link LinearLayoutManager}
+ * 基于RecyclerView和SwipeRefreshLayout自定义RefreshRecyclerView,适用于VERTICAL的{@link LinearLayoutManager},
+ * {@link GridLayoutManager}和{@link StaggeredGridLayoutManager}(通过{@link #setLayoutManager(RecyclerView.LayoutManager)}设置),
+ * header,footer和emptyView在网格中占满一行
  * 实现的功能:
  * 1.下拉刷新(刷新完成后自动滚动至第一个item)
- * 2.上拉加载更多(刷新完成后自动滚动至新添加的数据的第一个item)
- * 3.条目点击监听
- * 4.条目长按监听
- * 5.自动刷新 {@link #pullRefresh()}
- * 6.当数据为空时,自动显示EmptyView {@link EmptyViewHolder}
+ * 2.上拉加载更多(刷新完成后自动滚动至新添加的数据的第一个item),可通过{@link #setLoadMoreTriggerMode(int)}设置为滑动过程中提前加载
+ * 3.向上加载更早的数据 {@link #setOnLoadPreviousListener(OnLoadPreviousListener)},新数据插入后当前可见的条目保持不动
+ * 4.条目点击监听
+ * 5.条目长按监听(可通过{@link #setItemClickMode(int)}改为绑定时给每个条目设置监听,滚动过程中不再经过手势检测)
+ * 6.自动刷新 {@link #pullRefresh()}
+ * 7.当数据为空时,自动显示EmptyView {@link EmptyViewHolder}
+ * 8.高频推送的数据批量通知 {@link #getBatchedNotifier()}
+ * 9.共享RecycledViewPool {@link #setRecycledViewPool(RecyclerView.RecycledViewPool)},空闲时预先创建ViewHolder {@link #preInflate(int, int)}
+ * 10.可取消的数据加载,过期结果自动丢弃,失败重试 {@link #setRefreshLoader(RefreshLoader, Executor)}
+ * 11.快速滑动时延迟绑定 {@link #setDeferredBindEnable(boolean)},滑动状态监听 {@link #addOnScrollStateListener(OnScrollStateListener)}
+ * 12.性能统计(帧间隔/掉帧,条目创建和绑定耗时,刷新耗时) {@link #setOnMetricsListener(OnMetricsListener)}
+ * 13.分组悬停标题,通过{@link StickyHeaderDecoration#attachToRecyclerView(RecyclerView)}添加到{@link #getRecyclerView()}
+ * 14.快速滚动条 {@link #setFastScrollEnable(boolean)}
+ * 15.缓存条目高度 {@link RefreshAdapter#setRowHeightCacheEnable(boolean)},用于平滑滚动的距离和滚动条的范围
+ * 16.新数据的文字排版在后台线程预先计算 {@link RefreshAdapter#setTextPrecompute(TextLayoutCache, TextLayoutCache.TextSource)}
+ * 17.转发内部适配器的stable id,下拉刷新后保持当前可见的条目 {@link #setKeepAnchorOnRefresh(boolean)},按id保存条目状态 {@link RefreshAdapter#setItemState(int, Object)}
+ * 18.嵌套的横向列表共享pool并保存滚动位置 {@link CarouselHelper}
+ * 19.按id局部更新 {@link #notifyItemsChanged(long[], Object)},payload会传给内部适配器的onBindViewHolder(holder, position, payloads)
+ * 20.内存不足时释放缓存的view和不在显示中的数据 {@link #setTrimMemoryEnable(boolean)}
+ * 21.搜索过滤已加载的数据,后台增量建立索引 {@link #setFilterIndex(FilterIndex)}
  * 如果不需要下拉刷新功能,调用{@link #setPullRefreshEnable(boolean)}
  * 如果不需要上拉加载更多,{@link #setAdapter(RefreshAdapter)}中footerView参数给null就可以了
  *
@@ -30,16 +67,122 @@ import android.widget.LinearLayout;
  */
 public class RefreshRecyclerView extends LinearLayout {
     private static final String TAG = "RefreshRecyclerView";
+    private static final int DEFAULT_DIFF_MAX_SIZE = 1000;
+    /**
+     * 平滑滚动最多经过的条目数,超过时直接跳转
+     */
+    private static final int MAX_SMOOTH_SCROLL_ROWS = 50;
+    /**
+     * 通过GestureDetector检测点击和长按(默认)
+     */
+    public static final int CLICK_MODE_GESTURE = 0;
+    /**
+     * 绑定条目时给itemView设置点击和长按监听,内部适配器自己给itemView设置了监听时不覆盖
+     */
+    public static final int CLICK_MODE_BIND = 1;
     private RecyclerView mRecyclerView;
     private boolean isLoadingMore;
+    private boolean isLoadingPrevious;
+    private boolean hasPrevious = true;
     private boolean isRefreshing;
     private boolean isPullRefreshEnable = true;
     private SwipeRefreshLayout mSwipeRefreshLayout;
     private OnItemClickListener onItemClickListener;
     private OnItemLongClickListener onItemLongClickListener;
     private OnLoadMoreListener onLoadMoreListener;
+    private OnLoadPreviousListener onLoadPreviousListener;
+    private int mLoadPreviousThreshold;
     private RefreshAdapter mAdapter;
+    private final LayoutManagerHelper mLayoutManagerHelper = new LayoutManagerHelper();
+    private FastScroller mFastScroller;
+    /**
+     * 条目离开屏幕时记录它的高度
+     */
+    private RecyclerView.OnChildAttachStateChangeListener mRowHeightRecorder = new RecyclerView.OnChildAttachStateChangeListener() {
+        @Override
+        public void onChildViewAttachedToWindow(View view) {
+        }
+
+        @Override
+        public void onChildViewDetachedFromWindow(View view) {
+            recordRowHeight(view);
+        }
+    };
     private Context mContext;
+    private LoadMoreTrigger mLoadMoreTrigger = new LoadMoreTrigger();
+    private PagedDataSource<?> mPagedDataSource;
+    private Executor mDiffExecutor;
+    private int mDiffMaxSize = DEFAULT_DIFF_MAX_SIZE;
+    private int mDiffGeneration;
+    private boolean isKeepAnchorOnRefresh;
+    private FilterIndex<?> mFilterIndex;
+    private BatchedNotifier mBatchedNotifier;
+    private Executor mLoaderExecutor;
+    private int mLoaderGeneration;
+    private RefreshLoader.Request mRefreshRequest;
+    private RefreshLoader.Request mLoadMoreRequest;
+    private OnMetricsListener mOnMetricsListener;
+    private FrameMonitor mFrameMonitor;
+    private long mRefreshStartNanos;
+    private long mLoadMoreStartNanos;
+    private static final int DEFAULT_VIEW_CACHE_SIZE = 2;
+    private int mViewCacheSize = DEFAULT_VIEW_CACHE_SIZE;
+    private boolean isTrimMemoryEnable;
+    private boolean isTrimCallbacksRegistered;
+    private boolean isViewCacheTrimmed;
+    private boolean isSharedPool;
+    private int mTrimCacheLevel = ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+    private int mTrimDataLevel = ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+    private final TrimStats mTrimStats = new TrimStats();
+    private final ComponentCallbacks2 mTrimCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+    private RecyclerView.OnScrollListener mMetricsScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (mFrameMonitor == null) {
+                return;
+            }
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                mFrameMonitor.stop();
+            } else {
+                mFrameMonitor.start();
+            }
+        }
+    };
+    private ListUpdateCallback mAdapterUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            mAdapter.getInternalAdapter().notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mAdapter.getInternalAdapter().notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mAdapter.getInternalAdapter().notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mAdapter.getInternalAdapter().notifyItemRangeChanged(position, count, payload);
+        }
+    };
     private RecyclerView.OnScrollListener onScrollListener = new RecyclerView.OnScrollListener() {
 
         private int dy;
@@ -49,28 +192,144 @@ public class RefreshRecyclerView extends LinearLayout {
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
             super.onScrolled(recyclerView, dx, dy);
             this.dy = dy;
+            if (mPagedDataSource != null) {
+                //最后一个可见的是footer时取最后一条数据
+                mPagedDataSource.onVisibleRangeChanged(Math.max(mAdapter.getDataPosition(findFirstVisibleItemPosition()), 0),
+                        Math.min(mAdapter.getDataPosition(findLastVisibleItemPosition()), mAdapter.getDataCount() - 1));
+            }
+            if (dy < 0 && canLoadPrevious() && shouldLoadPrevious()) {
+                loadPrevious();
+            }
+            if (dy > 0 && mLoadMoreTrigger.getMode() == LoadMoreTrigger.MODE_PREFETCH && canLoadMore()) {
+                lastVisibleItemPosition = findLastVisibleItemPosition();
+                if (mLoadMoreTrigger.onScrolled(lastVisibleItemPosition, mAdapter.getItemCount(),
+                        recyclerView.getChildCount(), recyclerView.getHeight(), dy)) {
+                    loadMore();
+                }
+            }
         }
 
         @Override
         public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
             super.onScrollStateChanged(recyclerView, newState);
-            LinearLayoutManager manager = (LinearLayoutManager) recyclerView.getLayoutManager();
-            lastVisibleItemPosition = manager.findLastVisibleItemPosition();
+            lastVisibleItemPosition = findLastVisibleItemPosition();
             View footerView = mAdapter.getFooterView();
-            if (!isLoadingMore && !isRefreshing && mAdapter.isLoadMoreEnable && !mAdapter.isEmptyStatus && lastVisibleItemPosition + 1 == mAdapter.getItemCount() &&
-                    dy > 0 && newState == RecyclerView.SCROLL_STATE_IDLE && onLoadMoreListener != null) {
-                if (footerView != null) {
-                    footerView.setVisibility(View.VISIBLE);
-                }
-                isLoadingMore = true;
-                onLoadMoreListener.onLoadMore();
-
-            } else if (mAdapter.isLoadMoreEnable && footerView != null) {
+            if (canLoadMore() && newState == RecyclerView.SCROLL_STATE_IDLE &&
+                    mLoadMoreTrigger.onScrollIdle(lastVisibleItemPosition, mAdapter.getItemCount(), dy)) {
+                loadMore();
+            } else if (!isLoadingMore && mAdapter.isLoadMoreEnable && footerView != null) {
                 footerView.setVisibility(View.GONE);
             }
+            View headerView = mAdapter.getHeaderView();
+            if (canLoadPrevious() && newState == RecyclerView.SCROLL_STATE_IDLE && shouldLoadPrevious()) {
+                loadPrevious();
+            } else if (!isLoadingPrevious && headerView != null) {
+                headerView.setVisibility(View.GONE);
+            }
+        }
+    };
+    private final ArrayList<OnScrollStateListener> mScrollStateListeners = new ArrayList<>();
+    private boolean isDeferredBindEnable;
+    private int mDeferredBindVelocity;
+    private boolean isFlingFast;
+    private boolean isRebindPosted;
+    /**
+     * 重新绑定延迟的条目,onScrolled可能在布局过程中回调,不能在里面直接notify,放到下一帧执行
+     */
+    private final Runnable mRebindDeferredRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mAdapter == null || isFlingFast && isDeferredBindEnable) {
+                isRebindPosted = false;
+                return;
+            }
+            if (mRecyclerView.isComputingLayout()) {
+                ViewCompat.postOnAnimation(mRecyclerView, this);
+                return;
+            }
+            isRebindPosted = false;
+            mAdapter.rebindDeferred();
+        }
+    };
+    /**
+     * 根据onScrolled的间隔估算滑动速度,惯性滑动超过阈值时进入快速滑动状态
+     */
+    private RecyclerView.OnScrollListener mFlingScrollListener = new RecyclerView.OnScrollListener() {
+        private long lastScrollNanos;
+        private float velocity;
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            long now = System.nanoTime();
+            long elapsed = now - lastScrollNanos;
+            lastScrollNanos = now;
+            if (recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_SETTLING || elapsed <= 0) {
+                return;
+            }
+            float current = Math.abs(dy != 0 ? dy : dx) * 1000000000f / elapsed;
+            velocity = velocity == 0 ? current : (velocity + current) / 2;
+            setFlingFast(velocity > mDeferredBindVelocity);
+        }
+
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            lastScrollNanos = System.nanoTime();
+            velocity = 0;
+            if (newState != RecyclerView.SCROLL_STATE_SETTLING) {
+                setFlingFast(false);
+            }
+            for (int i = mScrollStateListeners.size() - 1; i >= 0; i--) {
+                mScrollStateListeners.get(i).onScrollStateChanged(newState, isFlingFast);
+            }
         }
     };
     private GestureDetectorCompat mGestureDetector;
+    private RecyclerView.OnItemTouchListener mItemTouchListener;
+    private int mItemClickMode = CLICK_MODE_GESTURE;
+    private View.OnClickListener mItemClickDispatcher = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            RecyclerView.ViewHolder vh = findItemViewHolder(v);
+            if (vh != null && onItemClickListener != null) {
+                onItemClickListener.onItemClick(vh, mAdapter.getDataPosition(vh.getAdapterPosition()));
+            }
+        }
+    };
+    private View.OnLongClickListener mItemLongClickDispatcher = new View.OnLongClickListener() {
+        @Override
+        public boolean onLongClick(View v) {
+            RecyclerView.ViewHolder vh = findItemViewHolder(v);
+            if (vh != null && onItemLongClickListener != null) {
+                onItemLongClickListener.onItemLongClick(vh, mAdapter.getDataPosition(vh.getAdapterPosition()));
+                return true;
+            }
+            return false;
+        }
+    };
+    private final SparseIntArray mPreInflateCounts = new SparseIntArray();
+    private boolean isPreInflating;
+    private MessageQueue.IdleHandler mPreInflateHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mAdapter == null || mPreInflateCounts.size() == 0) {
+                mPreInflateCounts.clear();
+                isPreInflating = false;
+                return false;
+            }
+            //每次空闲只创建一个,避免占用太长时间
+            int viewType = mPreInflateCounts.keyAt(0);
+            int count = mPreInflateCounts.valueAt(0);
+            if (count <= 1) {
+                mPreInflateCounts.removeAt(0);
+            } else {
+                mPreInflateCounts.put(viewType, count - 1);
+            }
+            RecyclerView.ViewHolder holder = mAdapter.createViewHolder(mRecyclerView, viewType);
+            mRecyclerView.getRecycledViewPool().putRecycledView(holder);
+            isPreInflating = mPreInflateCounts.size() > 0;
+            return isPreInflating;
+        }
+    };
     //    private ItemTouchHelper mItemTouchHelper;//可以实现拖动效果
     private boolean hasSetTouchListener;
     private OnPullRefreshListener onPullRefreshListener;
@@ -97,10 +356,13 @@ public class RefreshRecyclerView extends LinearLayout {
     private void init() {
         this.setOrientation(VERTICAL);
         mSwipeRefreshLayout = new SwipeRefreshLayout(mContext);
-        mRecyclerView = new RecyclerView(mContext);
+        mRecyclerView = new InnerRecyclerView(mContext);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(mContext, LinearLayoutManager.VERTICAL, false));
+        mRecyclerView.addOnScrollListener(mFlingScrollListener);
+        mRecyclerView.addOnChildAttachStateChangeListener(mRowHeightRecorder);
         mSwipeRefreshLayout.addView(mRecyclerView);
         this.addView(mSwipeRefreshLayout);
+        mDeferredBindVelocity = (int) (3000 * getResources().getDisplayMetrics().density);
     }
 
     /**
@@ -116,8 +378,8 @@ public class RefreshRecyclerView extends LinearLayout {
                     if (child != null) {
                         RecyclerView.ViewHolder vh = mRecyclerView.getChildViewHolder(child);
                         int childAdapterPosition = mRecyclerView.getChildAdapterPosition(child);
-                        if (onItemClickListener != null && childAdapterPosition + 1 != mAdapter.getItemCount()) {
-                            onItemClickListener.onItemClick(vh, childAdapterPosition);
+                        if (onItemClickListener != null && mAdapter.isDataPosition(childAdapterPosition)) {
+                            onItemClickListener.onItemClick(vh, mAdapter.getDataPosition(childAdapterPosition));
                         }
                     }
                     return true;
@@ -130,15 +392,15 @@ public class RefreshRecyclerView extends LinearLayout {
                     if (child != null) {
                         RecyclerView.ViewHolder vh = mRecyclerView.getChildViewHolder(child);
                         int childAdapterPosition = mRecyclerView.getChildAdapterPosition(child);
-                        if (onItemLongClickListener != null && childAdapterPosition + 1 != mAdapter.getItemCount()) {
-                            onItemLongClickListener.onItemLongClick(vh, childAdapterPosition);
+                        if (onItemLongClickListener != null && mAdapter.isDataPosition(childAdapterPosition)) {
+                            onItemLongClickListener.onItemLongClick(vh, mAdapter.getDataPosition(childAdapterPosition));
                         }
                     }
 
                 }
 
             });
-            mRecyclerView.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+            mItemTouchListener = new RecyclerView.SimpleOnItemTouchListener() {
                 @Override
                 public void onTouchEvent(RecyclerView rv, MotionEvent e) {
                     super.onTouchEvent(rv, e);
@@ -150,9 +412,73 @@ public class RefreshRecyclerView extends LinearLayout {
                 public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
                     return mGestureDetector.onTouchEvent(e);
                 }
-            });
+            };
+            mRecyclerView.addOnItemTouchListener(mItemTouchListener);
+        }
+
+    }
+
+    /**
+     * 移除手势检测
+     */
+    private void removeTouchListener() {
+        if (hasSetTouchListener) {
+            hasSetTouchListener = false;
+            mRecyclerView.removeOnItemTouchListener(mItemTouchListener);
+            mItemTouchListener = null;
+            mGestureDetector = null;
+        }
+    }
+
+    /**
+     * 根据点击模式设置条目的点击监听
+     */
+    private void updateItemClickListener() {
+        if (mItemClickMode == CLICK_MODE_BIND) {
+            removeTouchListener();
+            if (mAdapter != null) {
+                mAdapter.setItemClickDispatcher(onItemClickListener != null ? mItemClickDispatcher : null,
+                        onItemLongClickListener != null ? mItemLongClickDispatcher : null);
+            }
+        } else {
+            if (mAdapter != null) {
+                mAdapter.setItemClickDispatcher(null, null);
+                //已经绑定的条目立即去掉监听,缓存中的条目在重新绑定时去掉
+                for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+                    mAdapter.updateItemClickDispatcher(mRecyclerView.getChildViewHolder(mRecyclerView.getChildAt(i)));
+                }
+            }
+            if (onItemClickListener != null || onItemLongClickListener != null) {
+                setTouchListener();
+            }
         }
+    }
+
+    /**
+     * 获取被点击的itemView对应的ViewHolder,footer和emptyView或者已切换为手势检测时返回null
+     */
+    private RecyclerView.ViewHolder findItemViewHolder(View itemView) {
+        if (mItemClickMode != CLICK_MODE_BIND || itemView.getParent() != mRecyclerView) {
+            return null;
+        }
+        RecyclerView.ViewHolder vh = mRecyclerView.getChildViewHolder(itemView);
+        int position = vh.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || !mAdapter.isDataPosition(position)) {
+            return null;
+        }
+        return vh;
+    }
 
+    /**
+     * 设置条目点击和长按的检测方式
+     *
+     * @param mode {@link #CLICK_MODE_GESTURE}或{@link #CLICK_MODE_BIND}
+     * @return
+     */
+    public RefreshRecyclerView setItemClickMode(int mode) {
+        this.mItemClickMode = mode;
+        updateItemClickListener();
+        return this;
     }
 
     /**
@@ -166,8 +492,12 @@ public class RefreshRecyclerView extends LinearLayout {
         mSwipeRefreshLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
             @Override
             public void onRefresh() {
-                if (isPullRefreshEnable && !isRefreshing && !isLoadingMore && onPullRefreshListener != null) {
+                //通过RefreshLoader加载时,下拉刷新会取消正在进行的加载更多
+                if (isPullRefreshEnable && !isRefreshing && (!isLoadingMore || mLoadMoreRequest != null)
+                        && onPullRefreshListener != null) {
                     isRefreshing = true;
+                    mRefreshStartNanos = System.nanoTime();
+                    cancelLoadPrevious();
                     onPullRefreshListener.onPullRefresh();
                 }
             }
@@ -183,7 +513,7 @@ public class RefreshRecyclerView extends LinearLayout {
      */
     public RefreshRecyclerView setOnItemClickListener(OnItemClickListener onItemClickListener) {
         this.onItemClickListener = onItemClickListener;
-        setTouchListener();
+        updateItemClickListener();
         return this;
     }
 
@@ -195,7 +525,7 @@ public class RefreshRecyclerView extends LinearLayout {
      */
     public RefreshRecyclerView setOnItemLongClickListener(OnItemLongClickListener onItemLongClickListener) {
         this.onItemLongClickListener = onItemLongClickListener;
-        setTouchListener();
+        updateItemClickListener();
         return this;
     }
 
@@ -211,182 +541,1542 @@ public class RefreshRecyclerView extends LinearLayout {
     }
 
     /**
-     * 设置分割线
+     * 设置上拉加载更多的触发模式
      *
-     * @param itemDecoration
+     * @param mode {@link LoadMoreTrigger#MODE_IDLE}或{@link LoadMoreTrigger#MODE_PREFETCH}
+     * @return
      */
-    public void addItemDecoration(RecyclerView.ItemDecoration itemDecoration) {
-        this.mRecyclerView.addItemDecoration(itemDecoration);
+    public RefreshRecyclerView setLoadMoreTriggerMode(int mode) {
+        mLoadMoreTrigger.setMode(mode);
+        return this;
     }
 
     /**
-     * 通知下拉刷新完成
+     * 获取上拉加载更多的触发策略,可以设置提前加载的距离等参数
+     *
+     * @return
      */
-    public void notifyRefreshOkAndDataChange(int size) {
-        if (size > 0) {
-            int status = mAdapter.getStatus();
-            if (status == RefreshAdapter.STATUS_EMPTY) {
-                mAdapter.notifyItemRemoved(0);
-                mAdapter.setStatus(RefreshAdapter.STATUS_NORMAL);
-            }
-            mAdapter.notifyItemRangeInserted(0, size);
-            setSelection(0);
-        }
-        mSwipeRefreshLayout.setRefreshing(false);
-        isRefreshing = false;
+    public LoadMoreTrigger getLoadMoreTrigger() {
+        return mLoadMoreTrigger;
     }
 
     /**
-     * 通知加载更多完成并刷新数据
-     *
-     * @param size 新增数据的数量
+     * 是否满足加载更多的条件
      */
-    public void notifyLoadMoreOkAndDataChange(int size) {
-        if (size > 0) {
-            mAdapter.notifyItemRangeInserted(mAdapter.getItemCount() + 1, size);
-            setSelection(mAdapter.getItemCount() - 1 - size);
+    private boolean canLoadMore() {
+        return !isLoadingMore && !isRefreshing && mAdapter.isLoadMoreEnable && !mAdapter.isEmptyStatus() && onLoadMoreListener != null;
+    }
+
+    /**
+     * 显示footer并回调加载更多
+     */
+    private void loadMore() {
+        View footerView = mAdapter.getFooterView();
+        if (footerView != null) {
+            footerView.setVisibility(View.VISIBLE);
         }
-        mAdapter.notifyItemRemoved(mAdapter.getItemCount());
-        isLoadingMore = false;
+        isLoadingMore = true;
+        mLoadMoreStartNanos = System.nanoTime();
+        onLoadMoreListener.onLoadMore();
     }
 
     /**
-     * 获取适配器
+     * 设置向上加载更早数据的监听,需要在{@link RefreshAdapter#RefreshAdapter(RecyclerView.Adapter, View, View, View)}中设置headerView
      *
+     * @param onLoadPreviousListener
      * @return
      */
-    public RefreshAdapter getAdapter() {
-        return mAdapter;
+    public RefreshRecyclerView setOnLoadPreviousListener(OnLoadPreviousListener onLoadPreviousListener) {
+        this.onLoadPreviousListener = onLoadPreviousListener;
+        return this;
     }
 
     /**
-     * 设置适配器
+     * 设置向上滑动到第几条数据时开始加载更早的数据,默认0(滑动到第一条数据)
      *
-     * @param adapter
+     * @param threshold
+     * @return
      */
-    public void setAdapter(RefreshAdapter adapter) {
-        if (adapter == null) {
-            try {
-                throw new Exception("adapter is null");
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        } else {
-            this.mAdapter = adapter;
-            mRecyclerView.addOnScrollListener(onScrollListener);
-            mRecyclerView.setAdapter(adapter);
-        }
-
+    public RefreshRecyclerView setLoadPreviousThreshold(int threshold) {
+        this.mLoadPreviousThreshold = threshold;
+        return this;
     }
 
     /**
-     * 设置是否可以下拉刷新
+     * 设置是否还有更早的数据,没有时滑动到顶部不再回调{@link OnLoadPreviousListener#onLoadPrevious()},默认true
      *
-     * @param pullRefreshEnable
+     * @param hasPrevious
+     * @return
      */
-    public void setPullRefreshEnable(boolean pullRefreshEnable) {
-        this.isPullRefreshEnable = pullRefreshEnable;
+    public RefreshRecyclerView setHasPrevious(boolean hasPrevious) {
+        this.hasPrevious = hasPrevious;
+        return this;
     }
 
     /**
-     * 滚动RecyclerView到指定的位置
+     * 是否正在向上加载,下拉刷新开始时会结束向上加载,之后到达的结果应该丢弃,不要再插入数据
      *
-     * @param position
+     * @return
      */
-    public void setSelection(int position) {
-        mRecyclerView.scrollToPosition(position);
+    public boolean isLoadingPrevious() {
+        return isLoadingPrevious;
     }
 
     /**
-     * 设置条目动画
-     *
-     * @param animator
+     * 是否可以向上加载更早的数据
      */
-    public void setItemAnimator(RecyclerView.ItemAnimator animator) {
-        mRecyclerView.setItemAnimator(animator);
+    private boolean canLoadPrevious() {
+        return !isLoadingPrevious && !isRefreshing && hasPrevious && mAdapter.isLoadPreviousEnable
+                && !mAdapter.isEmptyStatus() && onLoadPreviousListener != null;
+    }
+
+    private boolean shouldLoadPrevious() {
+        return mAdapter.getDataPosition(findFirstVisibleItemPosition()) <= mLoadPreviousThreshold;
     }
 
     /**
-     * 设置下拉刷新进度条的颜色
-     *
-     * @param colors
+     * 向上加载更早的数据
      */
-    public void setColorSchemeColors(int... colors) {
-        mSwipeRefreshLayout.setColorSchemeColors(colors);
+    private void loadPrevious() {
+        mAdapter.getHeaderView().setVisibility(View.VISIBLE);
+        isLoadingPrevious = true;
+        onLoadPreviousListener.onLoadPrevious();
     }
 
     /**
-     * 下拉刷新
+     * 结束正在进行的向上加载并隐藏header,下拉刷新开始时调用
      */
-    public void pullRefresh() {
-        int measuredHeight = mSwipeRefreshLayout.getMeasuredHeight();
-        Log.e(TAG, "pullRefresh: measuredHeight : " + measuredHeight);
-        if (measuredHeight <= 0) {
-            mSwipeRefreshLayout.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                @Override
-                public void onGlobalLayout() {
-                    mSwipeRefreshLayout.getViewTreeObserver().removeGlobalOnLayoutListener(this);
-                    if (isPullRefreshEnable && !isRefreshing && onPullRefreshListener != null) {
-                        mSwipeRefreshLayout.setRefreshing(true);
-                        onPullRefreshListener.onPullRefresh();
-                        isRefreshing = true;
-                    }
+    private void cancelLoadPrevious() {
+        if (!isLoadingPrevious) {
+            return;
+        }
+        isLoadingPrevious = false;
+        View headerView = mAdapter.getHeaderView();
+        if (headerView != null) {
+            headerView.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * 通知向上加载完成并刷新数据,新数据插入在最前面,当前可见的条目保持在原来的位置
+     * 插入数据前先检查{@link #isLoadingPrevious()},为false时说明已经开始下拉刷新,结果应该丢弃
+     *
+     * @param size 新增数据的数量
+     */
+    public void notifyLoadPreviousOkAndDataChange(int size) {
+        if (size > 0) {
+            //记录第一个可见的数据条目和它的偏移,插入后滚动回去,只触发一次布局
+            int anchorPosition = RecyclerView.NO_POSITION;
+            int anchorTop = 0;
+            for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+                View child = mRecyclerView.getChildAt(i);
+                int position = mRecyclerView.getChildAdapterPosition(child);
+                if (mAdapter.isDataPosition(position)) {
+                    anchorPosition = position;
+                    anchorTop = child.getTop() - mRecyclerView.getPaddingTop();
+                    break;
                 }
-            });
-        } else {
-            if (isPullRefreshEnable && !isRefreshing && onPullRefreshListener != null) {
-                mSwipeRefreshLayout.setRefreshing(true);
-                onPullRefreshListener.onPullRefresh();
-                isRefreshing = true;
+            }
+            mAdapter.getInternalAdapter().notifyItemRangeInserted(0, size);
+            if (anchorPosition != RecyclerView.NO_POSITION) {
+                setSelectionFromTop(anchorPosition + size, anchorTop);
             }
         }
+        View headerView = mAdapter.getHeaderView();
+        if (headerView != null) {
+            headerView.setVisibility(View.GONE);
+        }
+        isLoadingPrevious = false;
     }
 
     /**
-     * 条目点击监听器
+     * 获取第一个可见条目的位置
      */
-    public interface OnItemClickListener {
-        void onItemClick(RecyclerView.ViewHolder holder, int position);
+    private int findFirstVisibleItemPosition() {
+        return mLayoutManagerHelper.findFirstVisibleItemPosition(mRecyclerView.getLayoutManager());
     }
 
+    /**
+     * 获取最后一个可见条目的位置
+     */
+    private int findLastVisibleItemPosition() {
+        return mLayoutManagerHelper.findLastVisibleItemPosition(mRecyclerView.getLayoutManager());
+    }
 
     /**
-     * 条目长按监听器
+     * 设置分页数据源,滚动时通知数据源可见区域,被释放的页重新加载完成后自动刷新对应条目
+     * 加载更多完成时先调用{@link PagedDataSource#appendPage(java.util.List)},再调用{@link #notifyLoadMoreOkAndDataChange(int)}
+     *
+     * @param dataSource
+     * @return
      */
-    public interface OnItemLongClickListener {
-        void onItemLongClick(RecyclerView.ViewHolder holder, int position);
+    public RefreshRecyclerView setPagedDataSource(PagedDataSource<?> dataSource) {
+        if (mPagedDataSource != null) {
+            mPagedDataSource.setOnPageReloadListener(null);
+        }
+        this.mPagedDataSource = dataSource;
+        if (dataSource != null) {
+            dataSource.setOnPageReloadListener(new PagedDataSource.OnPageReloadListener() {
+                @Override
+                public void onPageReloaded(final int start, final int count) {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mAdapter != null) {
+                                mAdapter.getInternalAdapter().notifyItemRangeChanged(start, count);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+        return this;
     }
 
     /**
-     * 上拉加载更多监听器
+     * 设置分割线
+     *
+     * @param itemDecoration
      */
-    public interface OnLoadMoreListener {
-        void onLoadMore();
+    public void addItemDecoration(RecyclerView.ItemDecoration itemDecoration) {
+        this.mRecyclerView.addItemDecoration(itemDecoration);
     }
 
     /**
-     * 下拉刷新监听器
+     * 通知下拉刷新完成,{@link RefreshAdapter#setItemState(int, Object)}保存的状态只保留仍然存在的条目
      */
-    public interface OnPullRefreshListener {
-        void onPullRefresh();
+    public void notifyRefreshOkAndDataChange(int size) {
+        if (mFilterIndex != null) {
+            mFilterIndex.notifySourceChanged();
+        } else if (size > 0) {
+            mAdapter.getInternalAdapter().notifyItemRangeInserted(0, size);
+            if (!isKeepAnchorOnRefresh) {
+                autoScrollTo(0);
+            }
+        }
+        mAdapter.retainItemStates();
+        finishRefresh();
     }
 
+    /**
+     * 设置搜索过滤,内部适配器从{@link FilterIndex#getCount()}和{@link FilterIndex#getItem(int)}读取数据,传null关闭
+     * 设置后下拉刷新和加载更多只需要修改完整的数据,再调用notifyRefreshOkAndDataChange/notifyLoadMoreOkAndDataChange,
+     * 过滤后的变化由FilterIndex计算后通知,没有匹配的数据时显示emptyView
+     *
+     * @param filterIndex
+     * @return
+     */
+    public RefreshRecyclerView setFilterIndex(FilterIndex<?> filterIndex) {
+        if (mFilterIndex != null) {
+            mFilterIndex.setCallback(null);
+        }
+        mFilterIndex = filterIndex;
+        if (filterIndex != null) {
+            filterIndex.setCallback(mAdapterUpdateCallback);
+        }
+        return this;
+    }
 
-    public static class RefreshAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    /**
+     * 下拉刷新完成后是否保持当前可见的条目不动,默认滚动到第一条
+     * 局部刷新时由RecyclerView保持,刷新全部数据时需要内部适配器有stable id,按id找到原来的条目并恢复偏移
+     *
+     * @param keepAnchor
+     * @return
+     */
+    public RefreshRecyclerView setKeepAnchorOnRefresh(boolean keepAnchor) {
+        this.isKeepAnchorOnRefresh = keepAnchor;
+        return this;
+    }
+
+    /**
+     * 刷新全部数据后按id恢复第一个可见的数据条目,找不到时滚动到第一条
+     */
+    private void restoreAnchor(long anchorId, int anchorTop) {
+        if (anchorId != RecyclerView.NO_ID) {
+            RecyclerView.Adapter internalAdapter = mAdapter.getInternalAdapter();
+            for (int i = 0, count = internalAdapter.getItemCount(); i < count; i++) {
+                if (internalAdapter.getItemId(i) == anchorId) {
+                    setSelectionFromTop(mAdapter.getAdapterPosition(i), anchorTop);
+                    return;
+                }
+            }
+        }
+        setSelection(0);
+    }
+
+    /**
+     * 通知下拉刷新完成,在后台线程比较新旧数据的差异,再回到主线程局部刷新(插入/删除/移动/更新)
+     * 新旧数据的数量超过{@link #setDiffMaxSize(int)}时,直接刷新全部数据;有一方为空时不用比较,直接整段插入或删除
+     *
+     * @param callback 比较新旧数据的回调,其中的数据必须是不会再被修改的快照
+     * @param swapData 在主线程把适配器的数据替换成新数据,在分发更新之前执行
+     */
+    public void notifyRefreshOkAndDataChange(final RefreshDiff.Callback callback, final Runnable swapData) {
+        final int generation = ++mDiffGeneration;
+        if (mFilterIndex != null) {
+            //过滤后的结果由FilterIndex比较
+            swapData.run();
+            mFilterIndex.notifySourceChanged();
+            mAdapter.retainItemStates();
+            finishRefresh();
+            return;
+        }
+        int oldSize = callback.getOldSize();
+        int newSize = callback.getNewSize();
+        if (oldSize == 0 || newSize == 0) {
+            swapData.run();
+            if (oldSize > 0) {
+                mAdapterUpdateCallback.onRemoved(0, oldSize);
+            } else if (newSize > 0) {
+                mAdapterUpdateCallback.onInserted(0, newSize);
+            }
+            mAdapter.retainItemStates();
+            finishRefresh();
+            return;
+        }
+        if (oldSize > mDiffMaxSize || newSize > mDiffMaxSize) {
+            long anchorId = RecyclerView.NO_ID;
+            int anchorTop = 0;
+            if (isKeepAnchorOnRefresh && mAdapter.hasStableIds()) {
+                for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+                    View child = mRecyclerView.getChildAt(i);
+                    if (mAdapter.isDataPosition(mRecyclerView.getChildAdapterPosition(child))) {
+                        anchorId = mRecyclerView.getChildItemId(child);
+                        anchorTop = child.getTop() - mRecyclerView.getPaddingTop();
+                        break;
+                    }
+                }
+            }
+            swapData.run();
+            mAdapter.getInternalAdapter().notifyDataSetChanged();
+            mAdapter.retainItemStates();
+            restoreAnchor(anchorId, anchorTop);
+            finishRefresh();
+            return;
+        }
+        Executor executor = mDiffExecutor != null ? mDiffExecutor : RefreshExecutors.background();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final RefreshDiff.Result result = RefreshDiff.calculate(callback);
+                //不能用View.post,view不在窗口中时API 24以下在后台线程post的任务不会执行
+                RefreshExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mDiffGeneration) {
+                            return;
+                        }
+                        swapData.run();
+                        if (result.hasUpdates()) {
+                            result.dispatchUpdatesTo(mAdapterUpdateCallback);
+                            mAdapter.retainItemStates();
+                            if (!isKeepAnchorOnRefresh) {
+                                autoScrollTo(0);
+                            }
+                        }
+                        finishRefresh();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 设置计算刷新数据差异的线程池,默认使用内置的单线程线程池
+     *
+     * @param executor
+     * @return
+     */
+    public RefreshRecyclerView setDiffExecutor(Executor executor) {
+        this.mDiffExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 设置计算差异的最大数据量,超过后直接刷新全部数据
+     *
+     * @param diffMaxSize
+     * @return
+     */
+    public RefreshRecyclerView setDiffMaxSize(int diffMaxSize) {
+        this.mDiffMaxSize = diffMaxSize;
+        return this;
+    }
+
+    /**
+     * 设置数据加载器,代替{@link #setOnPullRefreshListener(OnPullRefreshListener)}和{@link #setOnLoadMoreListener(OnLoadMoreListener)}
+     * 加载在executor中执行,结果在主线程应用,开始下拉刷新时会取消正在进行的刷新和加载更多,过期的结果直接丢弃
+     *
+     * @param loader
+     * @param executor 执行加载的线程池(网络请求一般使用单独的线程池,不要和差异计算共用),为null时使用默认的后台线程
+     * @return
+     */
+    public <T> RefreshRecyclerView setRefreshLoader(final RefreshLoader<T> loader, Executor executor) {
+        cancelLoading();
+        this.mLoaderExecutor = executor != null ? executor : RefreshExecutors.background();
+        setOnPullRefreshListener(new OnPullRefreshListener() {
+            @Override
+            public void onPullRefresh() {
+                startLoad(loader, RefreshLoader.TYPE_REFRESH, 0);
+            }
+        });
+        setOnLoadMoreListener(new OnLoadMoreListener() {
+            @Override
+            public void onLoadMore() {
+                startLoad(loader, RefreshLoader.TYPE_LOAD_MORE, 0);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 取消正在进行的刷新和加载更多,结束刷新状态
+     */
+    public void cancelLoading() {
+        mLoaderGeneration++;
+        if (mRefreshRequest != null) {
+            mRefreshRequest.cancel();
+            mRefreshRequest = null;
+            //被取消的刷新不统计耗时
+            finishRefresh(false);
+        }
+        cancelLoadMoreRequest();
+    }
+
+    private void cancelLoadMoreRequest() {
+        if (mLoadMoreRequest != null) {
+            mLoadMoreRequest.cancel();
+            mLoadMoreRequest = null;
+            finishLoadMore(false);
+        }
+    }
+
+    /**
+     * 开始加载,下拉刷新的第一次加载会取消之前的所有请求
+     */
+    private <T> void startLoad(final RefreshLoader<T> loader, final int type, int attempt) {
+        if (type == RefreshLoader.TYPE_REFRESH && attempt == 0) {
+            if (mRefreshRequest != null) {
+                mRefreshRequest.cancel();
+            }
+            cancelLoadMoreRequest();
+            mLoaderGeneration++;
+        }
+        final RefreshLoader.Request request = new RefreshLoader.Request(type, mLoaderGeneration, attempt);
+        if (type == RefreshLoader.TYPE_REFRESH) {
+            mRefreshRequest = request;
+        } else {
+            mLoadMoreRequest = request;
+        }
+        //load抛出的任何异常(包括RuntimeException和Error)都在done中取出,走失败重试的流程
+        FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return loader.load(type, request);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    final T result = get();
+                    //view不在窗口中时,API 24以下在后台线程调用post的任务不会执行,直接发到主线程
+                    RefreshExecutors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoadSuccess(loader, request, result);
+                        }
+                    });
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    final Exception error = cause instanceof Exception ? (Exception) cause : e;
+                    RefreshExecutors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoadFailed(loader, request, error);
+                        }
+                    });
+                }
+            }
+        };
+        request.setTask(task);
+        mLoaderExecutor.execute(task);
+    }
+
+    /**
+     * 请求没有被取消,也没有被新的请求代替
+     */
+    private boolean isCurrentRequest(RefreshLoader.Request request) {
+        if (request.isCancelled() || request.getGeneration() != mLoaderGeneration) {
+            return false;
+        }
+        return request == (request.getType() == RefreshLoader.TYPE_REFRESH ? mRefreshRequest : mLoadMoreRequest);
+    }
+
+    private <T> void onLoadSuccess(RefreshLoader<T> loader, RefreshLoader.Request request, T result) {
+        if (!isCurrentRequest(request)) {
+            return;
+        }
+        int size = loader.apply(request.getType(), result);
+        if (request.getType() == RefreshLoader.TYPE_REFRESH) {
+            mRefreshRequest = null;
+            notifyRefreshOkAndDataChange(size);
+        } else {
+            mLoadMoreRequest = null;
+            notifyLoadMoreOkAndDataChange(size);
+        }
+    }
+
+    private <T> void onLoadFailed(final RefreshLoader<T> loader, final RefreshLoader.Request request, Exception e) {
+        if (!isCurrentRequest(request)) {
+            return;
+        }
+        final int attempt = request.getAttempt() + 1;
+        if (attempt <= loader.getMaxRetries()) {
+            postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCurrentRequest(request)) {
+                        startLoad(loader, request.getType(), attempt);
+                    }
+                }
+            }, loader.getRetryDelay(attempt));
+            return;
+        }
+        //失败的加载不统计耗时,只由onFailed通知
+        if (request.getType() == RefreshLoader.TYPE_REFRESH) {
+            mRefreshRequest = null;
+            finishRefresh(false);
+        } else {
+            mLoadMoreRequest = null;
+            finishLoadMore(false);
+        }
+        loader.onFailed(request.getType(), e);
+    }
+
+    /**
+     * 添加滑动状态监听,可以用来在快速滑动时暂停图片加载
+     *
+     * @param listener
+     */
+    public void addOnScrollStateListener(OnScrollStateListener listener) {
+        mScrollStateListeners.add(listener);
+    }
+
+    public void removeOnScrollStateListener(OnScrollStateListener listener) {
+        mScrollStateListeners.remove(listener);
+    }
+
+    /**
+     * 设置是否开启延迟绑定:快速惯性滑动时内部适配器只绑定占位内容({@link DeferredBinder#onBindPlaceholder}),
+     * 速度降下来或停止滑动后,可见的条目以{@link RefreshAdapter#PAYLOAD_DEFERRED_BIND}为payload重新绑定完整内容
+     * 内部适配器需要实现{@link DeferredBinder}
+     *
+     * @param enable
+     * @return
+     */
+    public RefreshRecyclerView setDeferredBindEnable(boolean enable) {
+        this.isDeferredBindEnable = enable;
+        if (!enable && mAdapter != null) {
+            mAdapter.setDeferBind(false);
+            postRebindDeferred();
+        }
+        return this;
+    }
+
+    /**
+     * 设置进入快速滑动状态的速度阈值(像素/秒),默认3000dp/s
+     *
+     * @param velocity
+     * @return
+     */
+    public RefreshRecyclerView setDeferredBindVelocity(int velocity) {
+        this.mDeferredBindVelocity = velocity;
+        return this;
+    }
+
+    /**
+     * 是否正在快速惯性滑动
+     *
+     * @return
+     */
+    public boolean isFlingFast() {
+        return isFlingFast;
+    }
+
+    private void setFlingFast(boolean fast) {
+        if (isFlingFast == fast) {
+            return;
+        }
+        isFlingFast = fast;
+        if (isDeferredBindEnable && mAdapter != null) {
+            mAdapter.setDeferBind(fast);
+            if (!fast) {
+                postRebindDeferred();
+            }
+        }
+        for (int i = mScrollStateListeners.size() - 1; i >= 0; i--) {
+            mScrollStateListeners.get(i).onScrollStateChanged(mRecyclerView.getScrollState(), fast);
+        }
+    }
+
+    private void postRebindDeferred() {
+        if (!isRebindPosted) {
+            isRebindPosted = true;
+            ViewCompat.postOnAnimation(mRecyclerView, mRebindDeferredRunnable);
+        }
+    }
+
+    /**
+     * 获取批量通知,高频推送的数据通过它修改和通知,每一帧只刷新一次
+     *
+     * @return
+     */
+    public BatchedNotifier getBatchedNotifier() {
+        if (mBatchedNotifier == null) {
+            mBatchedNotifier = new BatchedNotifier(mRecyclerView, mAdapterUpdateCallback);
+        }
+        return mBatchedNotifier;
+    }
+
+    /**
+     * 按stable id局部更新条目,在下一帧合并通知,同一条目的多个payload只触发一次绑定
+     * 内部适配器在onBindViewHolder(holder, position, payloads)中按payload只更新对应的子view(比如点赞数)
+     * 需要内部适配器有stable id
+     *
+     * @param ids
+     * @param payload 为null时完整绑定
+     */
+    public void notifyItemsChanged(long[] ids, Object payload) {
+        if (mAdapter == null || !mAdapter.hasStableIds()) {
+            Log.w(TAG, "notifyItemsChanged requires stable ids");
+            return;
+        }
+        getBatchedNotifier().changeById(ids, payload);
+    }
+
+    /**
+     * 结束下拉刷新状态
+     */
+    private void finishRefresh() {
+        finishRefresh(true);
+    }
+
+    /**
+     * @param reportLatency 是否回调{@link OnMetricsListener#onRefreshFinished(long)}
+     */
+    private void finishRefresh(boolean reportLatency) {
+        mLoadMoreTrigger.reset();
+        mSwipeRefreshLayout.setRefreshing(false);
+        if (reportLatency && isRefreshing && mOnMetricsListener != null) {
+            mOnMetricsListener.onRefreshFinished(System.nanoTime() - mRefreshStartNanos);
+        }
+        isRefreshing = false;
+    }
+
+    /**
+     * 通知加载更多完成并刷新数据
+     *
+     * @param size 新增数据的数量
+     */
+    public void notifyLoadMoreOkAndDataChange(int size) {
+        if (mFilterIndex != null) {
+            //只有匹配的数据会追加,不自动滚动
+            mFilterIndex.notifySourceAppended(size);
+        } else if (size > 0) {
+            RecyclerView.Adapter internalAdapter = mAdapter.getInternalAdapter();
+            int positionStart = internalAdapter.getItemCount() - size;
+            internalAdapter.notifyItemRangeInserted(positionStart, size);
+            autoScrollTo(mAdapter.getAdapterPosition(positionStart));
+        }
+        finishLoadMore(true);
+    }
+
+    /**
+     * 结束加载更多状态
+     *
+     * @param reportLatency 是否回调{@link OnMetricsListener#onLoadMoreFinished(long)}
+     */
+    private void finishLoadMore(boolean reportLatency) {
+        View footerView = mAdapter.getFooterView();
+        if (footerView != null) {
+            footerView.setVisibility(View.GONE);
+        }
+        if (reportLatency && isLoadingMore && mOnMetricsListener != null) {
+            mOnMetricsListener.onLoadMoreFinished(System.nanoTime() - mLoadMoreStartNanos);
+        }
+        isLoadingMore = false;
+    }
+
+    /**
+     * 设置性能统计监听,传null关闭统计
+     * 统计帧间隔和掉帧数(滑动过程中,需要4.1以上),条目创建和绑定的耗时,下拉刷新和加载更多的耗时
+     * 可以直接使用{@link RefreshMetrics}汇总成直方图
+     *
+     * @param listener
+     * @return
+     */
+    public RefreshRecyclerView setOnMetricsListener(OnMetricsListener listener) {
+        this.mOnMetricsListener = listener;
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+            mFrameMonitor = null;
+        }
+        mRecyclerView.removeOnScrollListener(mMetricsScrollListener);
+        if (listener != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                WindowManager windowManager = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+                mFrameMonitor = new FrameMonitor(windowManager.getDefaultDisplay().getRefreshRate(), listener);
+            }
+            mRecyclerView.addOnScrollListener(mMetricsScrollListener);
+        }
+        if (mAdapter != null) {
+            mAdapter.setMetricsListener(listener);
+        }
+        return this;
+    }
+
+    /**
+     * 获取内部的RecyclerView
+     *
+     * @return
+     */
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    /**
+     * 设置共享的RecycledViewPool,多个页面(比如ViewPager的各个tab)使用同一个pool时可以互相复用ViewHolder
+     * 共享时内部适配器最好通过{@link CompositeAdapter}或{@link ViewTypeRegistry}分配条目类型,避免不同适配器的类型冲突
+     *
+     * @param pool
+     * @return
+     */
+    public RefreshRecyclerView setRecycledViewPool(RecyclerView.RecycledViewPool pool) {
+        isSharedPool = pool != null;
+        mRecyclerView.setRecycledViewPool(pool);
+        return this;
+    }
+
+    /**
+     * 获取RecycledViewPool
+     *
+     * @return
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mRecyclerView.getRecycledViewPool();
+    }
+
+    /**
+     * 设置某个条目类型在RecycledViewPool中最多缓存的数量(默认5个)
+     *
+     * @param viewType
+     * @param max
+     * @return
+     */
+    public RefreshRecyclerView setMaxRecycledViews(int viewType, int max) {
+        mRecyclerView.getRecycledViewPool().setMaxRecycledViews(viewType, max);
+        return this;
+    }
+
+    /**
+     * 在主线程空闲时预先创建指定数量的ViewHolder放入RecycledViewPool,第一次刷新数据后滑动时不用再创建
+     * 每次空闲只创建一个,需要在{@link #setAdapter(RefreshAdapter)}之后调用
+     * count超过{@link #setMaxRecycledViews(int, int)}设置的数量时,多出的部分会被pool丢弃
+     *
+     * @param viewType 内部适配器的条目类型,使用{@link CompositeAdapter}时为{@link ViewTypeRegistry#obtainSharedType(Object, int)}分配的类型
+     * @param count
+     * @return
+     */
+    public RefreshRecyclerView preInflate(int viewType, int count) {
+        if (mAdapter == null || count <= 0 || mAdapter.isSingleViewType(viewType)) {
+            return this;
+        }
+        mPreInflateCounts.put(viewType, mPreInflateCounts.get(viewType) + count);
+        if (!isPreInflating) {
+            isPreInflating = true;
+            Looper.myQueue().addIdleHandler(mPreInflateHandler);
+        }
+        return this;
+    }
+
+    /**
+     * 取消还没有执行的预创建
+     */
+    public void cancelPreInflate() {
+        mPreInflateCounts.clear();
+        if (isPreInflating) {
+            isPreInflating = false;
+            Looper.myQueue().removeIdleHandler(mPreInflateHandler);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        registerTrimCallbacks();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelPreInflate();
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        unregisterTrimCallbacks();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        //回到前台时恢复view缓存,数据由内部适配器在绑定时重新加载
+        if (visibility == VISIBLE && isViewCacheTrimmed) {
+            isViewCacheTrimmed = false;
+            mRecyclerView.setItemViewCacheSize(mViewCacheSize);
+        }
+    }
+
+    /**
+     * 设置滑出屏幕的条目直接缓存(不需要重新绑定)的数量,默认2个
+     *
+     * @param size
+     * @return
+     */
+    public RefreshRecyclerView setItemViewCacheSize(int size) {
+        this.mViewCacheSize = size;
+        if (!isViewCacheTrimmed) {
+            mRecyclerView.setItemViewCacheSize(size);
+        }
+        return this;
+    }
+
+    /**
+     * 是否在内存不足(onTrimMemory/onLowMemory)时释放内存,默认关闭
+     * 1.达到{@link #setTrimMemoryLevels(int, int)}的cacheLevel:清空view缓存和RecycledViewPool,取消预创建,回到前台时恢复view缓存,
+     * 通过{@link #setRecycledViewPool(RecyclerView.RecycledViewPool)}设置的共享pool不会被清空,其他页面还在使用
+     * 2.达到dataLevel:另外清空文字排版和高度缓存,内部适配器实现{@link TrimmableAdapter}时释放不在显示中的数据
+     * 释放的数量通过{@link #getTrimStats()}获取
+     *
+     * @param enable
+     * @return
+     */
+    public RefreshRecyclerView setTrimMemoryEnable(boolean enable) {
+        this.isTrimMemoryEnable = enable;
+        if (enable) {
+            if (getWindowToken() != null) {
+                registerTrimCallbacks();
+            }
+        } else {
+            unregisterTrimCallbacks();
+        }
+        return this;
+    }
+
+    /**
+     * 设置释放内存的级别,取值为ComponentCallbacks2.TRIM_MEMORY_*
+     *
+     * @param cacheLevel 释放view缓存的级别,默认TRIM_MEMORY_UI_HIDDEN
+     * @param dataLevel  释放数据的级别,默认TRIM_MEMORY_BACKGROUND
+     * @return
+     */
+    public RefreshRecyclerView setTrimMemoryLevels(int cacheLevel, int dataLevel) {
+        this.mTrimCacheLevel = cacheLevel;
+        this.mTrimDataLevel = dataLevel;
+        return this;
+    }
+
+    /**
+     * 获取释放内存的统计
+     *
+     * @return
+     */
+    public TrimStats getTrimStats() {
+        return mTrimStats;
+    }
+
+    private void registerTrimCallbacks() {
+        if (isTrimMemoryEnable && !isTrimCallbacksRegistered) {
+            isTrimCallbacksRegistered = true;
+            getContext().getApplicationContext().registerComponentCallbacks(mTrimCallbacks);
+        }
+    }
+
+    private void unregisterTrimCallbacks() {
+        if (isTrimCallbacksRegistered) {
+            isTrimCallbacksRegistered = false;
+            getContext().getApplicationContext().unregisterComponentCallbacks(mTrimCallbacks);
+        }
+    }
+
+    /**
+     * 按级别释放内存
+     */
+    private void trimMemory(int level) {
+        if (level < mTrimCacheLevel) {
+            return;
+        }
+        mTrimStats.trimCount++;
+        cancelPreInflate();
+        //先把缓存的view放回pool,再一起清空,共享的pool只放回不清空
+        isViewCacheTrimmed = true;
+        mRecyclerView.setItemViewCacheSize(0);
+        if (!isSharedPool) {
+            mRecyclerView.getRecycledViewPool().clear();
+            mTrimStats.poolClearCount++;
+        }
+        if (level < mTrimDataLevel || mAdapter == null) {
+            return;
+        }
+        if (mAdapter.textLayoutCache != null) {
+            mTrimStats.releasedLayoutCount += mAdapter.textLayoutCache.size();
+            mAdapter.textLayoutCache.clear();
+        }
+        if (mAdapter.rowHeightCache != null) {
+            mAdapter.rowHeightCache.clear();
+        }
+        if (mAdapter.getInternalAdapter() instanceof TrimmableAdapter) {
+            int first = findFirstVisibleItemPosition();
+            int last = findLastVisibleItemPosition();
+            int firstData = RecyclerView.NO_POSITION;
+            int lastData = RecyclerView.NO_POSITION;
+            for (int i = first; i != RecyclerView.NO_POSITION && i <= last; i++) {
+                if (mAdapter.isDataPosition(i)) {
+                    if (firstData == RecyclerView.NO_POSITION) {
+                        firstData = mAdapter.getDataPosition(i);
+                    }
+                    lastData = mAdapter.getDataPosition(i);
+                }
+            }
+            mTrimStats.releasedItemCount += ((TrimmableAdapter) mAdapter.getInternalAdapter()).onTrimMemory(level, firstData, lastData);
+        }
+    }
+
+    /**
+     * 设置LayoutManager,默认为VERTICAL的LinearLayoutManager
+     * 使用GridLayoutManager时,自定义的SpanSizeLookup需要在调用本方法之前设置,位置参数为数据的位置
+     *
+     * @param layoutManager
+     */
+    public void setLayoutManager(RecyclerView.LayoutManager layoutManager) {
+        mRecyclerView.setLayoutManager(layoutManager);
+        if (mAdapter != null) {
+            mAdapter.setupLayoutManager(layoutManager);
+        }
+    }
+
+    /**
+     * 是否显示快速滚动条,拖动到底部松手时和滑动到底部一样触发加载更多
+     *
+     * @param enable
+     * @return
+     */
+    public RefreshRecyclerView setFastScrollEnable(boolean enable) {
+        if (!enable) {
+            if (mFastScroller != null) {
+                mFastScroller.attachToRecyclerView(null);
+                mFastScroller = null;
+            }
+            return this;
+        }
+        if (mFastScroller == null) {
+            mFastScroller = new FastScroller(getContext());
+            mFastScroller.setOnDragListener(new FastScroller.OnDragListener() {
+                @Override
+                public void onDragStateChanged(boolean dragging) {
+                    if (!dragging && mAdapter != null && canLoadMore()
+                            && findLastVisibleItemPosition() + 1 == mAdapter.getItemCount()) {
+                        loadMore();
+                    }
+                }
+            });
+            mFastScroller.attachToRecyclerView(mRecyclerView);
+        }
+        return this;
+    }
+
+    /**
+     * 获取快速滚动条,没有开启时返回null
+     *
+     * @return
+     */
+    public FastScroller getFastScroller() {
+        return mFastScroller;
+    }
+
+    /**
+     * 获取适配器
+     *
+     * @return
+     */
+    public RefreshAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * 设置适配器
+     *
+     * @param adapter
+     */
+    public void setAdapter(RefreshAdapter adapter) {
+        if (adapter == null) {
+            try {
+                throw new Exception("adapter is null");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        } else {
+            this.mAdapter = adapter;
+            mRecyclerView.addOnScrollListener(onScrollListener);
+            mRecyclerView.setAdapter(adapter);
+            adapter.setMetricsListener(mOnMetricsListener);
+            updateItemClickListener();
+        }
+
+    }
+
+    /**
+     * 设置是否可以下拉刷新
+     *
+     * @param pullRefreshEnable
+     */
+    public void setPullRefreshEnable(boolean pullRefreshEnable) {
+        this.isPullRefreshEnable = pullRefreshEnable;
+    }
+
+    /**
+     * 滚动RecyclerView到指定的位置
+     *
+     * @param position
+     */
+    public void setSelection(int position) {
+        mRecyclerView.scrollToPosition(position);
+    }
+
+    /**
+     * 滚动RecyclerView到指定的位置,并且条目顶部距离列表顶部offset
+     *
+     * @param position
+     * @param offset
+     */
+    public void setSelectionFromTop(int position, int offset) {
+        mLayoutManagerHelper.scrollToPositionWithOffset(mRecyclerView.getLayoutManager(), position, offset);
+    }
+
+    /**
+     * 平滑滚动到指定的位置,条目完整显示即停止
+     * 开启高度缓存时按缓存的高度计算滚动距离,不需要逐个测量中间的条目,距离太远时直接跳转
+     *
+     * @param position
+     */
+    public void smoothScrollToPosition(int position) {
+        int distance = computeScrollDistance(position);
+        if (distance == Integer.MIN_VALUE) {
+            mRecyclerView.smoothScrollToPosition(position);
+        } else if (distance != Integer.MAX_VALUE) {
+            mRecyclerView.smoothScrollBy(0, distance);
+        } else {
+            setSelection(position);
+        }
+    }
+
+    /**
+     * 刷新和加载更多完成后的自动滚动,开启高度缓存时平滑滚动,否则直接跳转
+     */
+    private void autoScrollTo(int position) {
+        if (mAdapter.getRowHeightCache() != null) {
+            smoothScrollToPosition(position);
+        } else {
+            setSelection(position);
+        }
+    }
+
+    /**
+     * 按缓存的高度计算滚动到position需要的距离(条目完整显示)
+     * 不能计算(没有开启缓存或不是VERTICAL的LinearLayoutManager)时返回Integer.MIN_VALUE,距离太远时返回Integer.MAX_VALUE
+     * GridLayoutManager一行有多个条目,按条目累加高度会多算,也不能计算
+     */
+    private int computeScrollDistance(int position) {
+        RowHeightCache cache = mAdapter == null ? null : mAdapter.getRowHeightCache();
+        RecyclerView.LayoutManager manager = mRecyclerView.getLayoutManager();
+        if (cache == null || !(manager instanceof LinearLayoutManager) || manager instanceof GridLayoutManager
+                || ((LinearLayoutManager) manager).getOrientation() != LinearLayoutManager.VERTICAL) {
+            return Integer.MIN_VALUE;
+        }
+        View first = null;
+        View last = null;
+        int firstPosition = RecyclerView.NO_POSITION;
+        int lastPosition = RecyclerView.NO_POSITION;
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            View child = mRecyclerView.getChildAt(i);
+            //已经包含了还没有布局的数据变化
+            int childPosition = mRecyclerView.getChildAdapterPosition(child);
+            if (childPosition == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            if (childPosition == position) {
+                int top = manager.getDecoratedTop(child) - mRecyclerView.getPaddingTop();
+                int bottom = manager.getDecoratedBottom(child) - (mRecyclerView.getHeight() - mRecyclerView.getPaddingBottom());
+                return top < 0 ? top : Math.max(bottom, 0);
+            }
+            if (first == null || childPosition < firstPosition) {
+                first = child;
+                firstPosition = childPosition;
+            }
+            if (last == null || childPosition > lastPosition) {
+                last = child;
+                lastPosition = childPosition;
+            }
+        }
+        if (first == null) {
+            return Integer.MIN_VALUE;
+        }
+        if (Math.max(position - lastPosition, firstPosition - position) > MAX_SMOOTH_SCROLL_ROWS) {
+            return Integer.MAX_VALUE;
+        }
+        int averageHeight = getAverageRowHeight(cache);
+        if (position > lastPosition) {
+            int distance = manager.getDecoratedBottom(last) - (mRecyclerView.getHeight() - mRecyclerView.getPaddingBottom());
+            for (int i = lastPosition + 1; i <= position; i++) {
+                distance += getRowHeight(cache, i, averageHeight);
+            }
+            return distance;
+        }
+        int distance = manager.getDecoratedTop(first) - mRecyclerView.getPaddingTop();
+        for (int i = position; i < firstPosition; i++) {
+            distance -= getRowHeight(cache, i, averageHeight);
+        }
+        return distance;
+    }
+
+    /**
+     * 条目的高度,没有缓存时返回平均高度,header和footer按照当前的高度计算
+     */
+    private int getRowHeight(RowHeightCache cache, int position, int averageHeight) {
+        if (!mAdapter.isDataPosition(position)) {
+            View view = position == 0 ? mAdapter.getHeaderView() : mAdapter.getFooterView();
+            return view == null || view.getVisibility() == View.GONE ? 0 : view.getHeight();
+        }
+        return cache.get(mAdapter.getRowKey(mAdapter.getDataPosition(position)), averageHeight);
+    }
+
+    /**
+     * 缓存的平均高度,还没有缓存时使用当前显示的条目
+     */
+    private int getAverageRowHeight(RowHeightCache cache) {
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            recordRowHeight(mRecyclerView.getChildAt(i));
+        }
+        return cache.getAverageHeight();
+    }
+
+    /**
+     * 记录数据条目包含分割线和margin的高度
+     */
+    private void recordRowHeight(View view) {
+        RowHeightCache cache = mAdapter == null ? null : mAdapter.getRowHeightCache();
+        RecyclerView.LayoutManager manager = mRecyclerView.getLayoutManager();
+        if (cache == null || manager == null || view.isLayoutRequested()) {
+            return;
+        }
+        RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+        //离开屏幕时adapterPosition可能已经失效,layoutPosition和view的内容一致
+        int position = holder.getLayoutPosition();
+        if (!mAdapter.isDataPosition(position)) {
+            return;
+        }
+        long key = mAdapter.getInternalAdapter().hasStableIds() ? holder.getItemId() : mAdapter.getDataPosition(position);
+        int height = manager.getDecoratedBottom(view) - manager.getDecoratedTop(view);
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params instanceof ViewGroup.MarginLayoutParams) {
+            height += ((ViewGroup.MarginLayoutParams) params).topMargin + ((ViewGroup.MarginLayoutParams) params).bottomMargin;
+        }
+        cache.put(key, height);
+    }
+
+    /**
+     * 获取第一个可见条目的位置
+     *
+     * @return
+     */
+    public int getFirstVisiblePosition() {
+        return findFirstVisibleItemPosition();
+    }
+
+    /**
+     * 获取第一个可见条目顶部距离列表顶部的偏移,和{@link #setSelectionFromTop(int, int)}配合恢复滚动位置
+     *
+     * @return
+     */
+    public int getFirstVisibleTop() {
+        int position = findFirstVisibleItemPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return 0;
+        }
+        View view = mRecyclerView.getLayoutManager().findViewByPosition(position);
+        return view == null ? 0 : view.getTop() - mRecyclerView.getPaddingTop();
+    }
+
+    /**
+     * 设置条目动画
+     *
+     * @param animator
+     */
+    public void setItemAnimator(RecyclerView.ItemAnimator animator) {
+        mRecyclerView.setItemAnimator(animator);
+    }
+
+    /**
+     * 设置下拉刷新进度条的颜色
+     *
+     * @param colors
+     */
+    public void setColorSchemeColors(int... colors) {
+        mSwipeRefreshLayout.setColorSchemeColors(colors);
+    }
+
+    /**
+     * 下拉刷新
+     */
+    public void pullRefresh() {
+        int measuredHeight = mSwipeRefreshLayout.getMeasuredHeight();
+        Log.e(TAG, "pullRefresh: measuredHeight : " + measuredHeight);
+        if (measuredHeight <= 0) {
+            mSwipeRefreshLayout.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    mSwipeRefreshLayout.getViewTreeObserver().removeGlobalOnLayoutListener(this);
+                    if (isPullRefreshEnable && !isRefreshing && onPullRefreshListener != null) {
+                        mSwipeRefreshLayout.setRefreshing(true);
+                        mRefreshStartNanos = System.nanoTime();
+                        cancelLoadPrevious();
+                        onPullRefreshListener.onPullRefresh();
+                        isRefreshing = true;
+                    }
+                }
+            });
+        } else {
+            if (isPullRefreshEnable && !isRefreshing && onPullRefreshListener != null) {
+                mSwipeRefreshLayout.setRefreshing(true);
+                mRefreshStartNanos = System.nanoTime();
+                cancelLoadPrevious();
+                onPullRefreshListener.onPullRefresh();
+                isRefreshing = true;
+            }
+        }
+    }
+
+    /**
+     * 条目点击监听器
+     */
+    public interface OnItemClickListener {
+        void onItemClick(RecyclerView.ViewHolder holder, int position);
+    }
+
+
+    /**
+     * 条目长按监听器
+     */
+    public interface OnItemLongClickListener {
+        void onItemLongClick(RecyclerView.ViewHolder holder, int position);
+    }
+
+    /**
+     * 上拉加载更多监听器
+     */
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    /**
+     * 滑动状态监听器
+     */
+    public interface OnScrollStateListener {
+        /**
+         * 滑动状态或快速滑动状态变化
+         *
+         * @param newState  {@link RecyclerView#SCROLL_STATE_IDLE}等
+         * @param flingFast 是否正在快速惯性滑动
+         */
+        void onScrollStateChanged(int newState, boolean flingFast);
+    }
+
+    /**
+     * 支持延迟绑定的内部适配器,见{@link #setDeferredBindEnable(boolean)}
+     */
+    public interface DeferredBinder {
+        /**
+         * 快速滑动时绑定占位内容(不加载图片等耗时操作)
+         */
+        void onBindPlaceholder(RecyclerView.ViewHolder holder, int position);
+    }
+
+    /**
+     * 内存不足时可以释放数据的内部适配器,见{@link #setTrimMemoryEnable(boolean)}
+     */
+    public interface TrimmableAdapter {
+        /**
+         * 释放不在显示中的数据(比如图片,解析后的内容),重新绑定时再加载
+         *
+         * @param level        ComponentCallbacks2.TRIM_MEMORY_*
+         * @param firstVisible 第一个显示中的数据位置,没有时为{@link RecyclerView#NO_POSITION}
+         * @param lastVisible  最后一个显示中的数据位置
+         * @return 释放的数据数量
+         */
+        int onTrimMemory(int level, int firstVisible, int lastVisible);
+    }
+
+    /**
+     * 释放内存的统计,所有数量从创建开始累计
+     */
+    public static class TrimStats {
+        private int trimCount;
+        private int poolClearCount;
+        private int releasedItemCount;
+        private int releasedLayoutCount;
+
+        /**
+         * 释放内存的次数
+         */
+        public int getTrimCount() {
+            return trimCount;
+        }
+
+        /**
+         * 清空RecycledViewPool的次数,共享的pool不会被清空
+         */
+        public int getPoolClearCount() {
+            return poolClearCount;
+        }
+
+        /**
+         * 内部适配器释放的数据数量
+         */
+        public int getReleasedItemCount() {
+            return releasedItemCount;
+        }
+
+        /**
+         * 释放的文字排版数量
+         */
+        public int getReleasedLayoutCount() {
+            return releasedLayoutCount;
+        }
+
+        @Override
+        public String toString() {
+            return "TrimStats{trim=" + trimCount + ", poolClear=" + poolClearCount
+                    + ", releasedItems=" + releasedItemCount + ", releasedLayouts=" + releasedLayoutCount + '}';
+        }
+    }
+
+    /**
+     * 向上加载更早数据的监听器,没有更早的数据时调用{@link #setHasPrevious(boolean)}
+     */
+    public interface OnLoadPreviousListener {
+        void onLoadPrevious();
+    }
+
+    /**
+     * 下拉刷新监听器
+     */
+    public interface OnPullRefreshListener {
+        void onPullRefresh();
+    }
+
+    /**
+     * 性能统计监听器,时间单位都是纳秒,在主线程回调
+     */
+    public interface OnMetricsListener {
+        /**
+         * 滑动过程中的每一帧
+         *
+         * @param frameIntervalNanos 和上一帧的间隔
+         * @param droppedFrames      掉帧数
+         */
+        void onFrame(long frameIntervalNanos, int droppedFrames);
+
+        void onCreateViewHolder(int viewType, long durationNanos);
+
+        void onBindViewHolder(int viewType, long durationNanos);
+
+        /**
+         * 从触发下拉刷新到刷新完成,通过{@link #cancelLoading()}取消或{@link RefreshLoader}加载失败的刷新不回调
+         */
+        void onRefreshFinished(long latencyNanos);
+
+        /**
+         * 从触发加载更多到{@link #notifyLoadMoreOkAndDataChange(int)},取消或{@link RefreshLoader}加载失败时不回调
+         */
+        void onLoadMoreFinished(long latencyNanos);
+    }
+
+
+    public static class RefreshAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         public static final int STATUS_EMPTY = 1;
         public static final int STATUS_NORMAL = 0;
-        private static final int TYPE_FOOTER = 0xFF;
-        private static final int TYPE_EMPTY = 0xEE;
+        /**
+         * 延迟绑定的条目重新绑定完整内容时的payload
+         */
+        public static final Object PAYLOAD_DEFERRED_BIND = new Object();
+        /**
+         * header,footer和emptyView保留的stable id,内部适配器不能使用
+         */
+        public static final long ID_HEADER = RefreshItemDispatcher.ID_HEADER;
+        public static final long ID_FOOTER = RefreshItemDispatcher.ID_FOOTER;
+        public static final long ID_EMPTY = RefreshItemDispatcher.ID_EMPTY;
+        /**
+         * header,footer和emptyView的条目类型,每个适配器单独分配,不会和内部适配器的类型冲突
+         */
+        private final int typeHeader = ViewTypeRegistry.getDefault().obtainUniqueType();
+        private final int typeFooter = ViewTypeRegistry.getDefault().obtainUniqueType();
+        private final int typeEmpty = ViewTypeRegistry.getDefault().obtainUniqueType();
         private RecyclerView.Adapter mInternalAdapter;
+        private RecyclerView.ViewHolder headerViewHolder;
+        private View headerView;
+        private boolean isLoadPreviousEnable;
         private RecyclerView.ViewHolder footerViewHolder;
         private View footerView;
         private boolean isLoadMoreEnable;
         private EmptyViewHolder emptyViewHolder;
-        private boolean isEmptyStatus;
-        private int status;
+        private View.OnClickListener itemClickDispatcher;
+        private View.OnLongClickListener itemLongClickDispatcher;
+        /**
+         * 条目创建时自己是否有点击/长按监听,以及绑定时是否设置了分发监听
+         */
+        private final WeakHashMap<RecyclerView.ViewHolder, Integer> clickFlags = new WeakHashMap<>();
+        private static final int FLAG_OWN_CLICK = 1;
+        private static final int FLAG_OWN_LONG_CLICK = 1 << 1;
+        private static final int FLAG_CLICKABLE = 1 << 2;
+        private static final int FLAG_CLICK_DISPATCHED = 1 << 3;
+        private static final int FLAG_LONG_CLICK_DISPATCHED = 1 << 4;
+        private OnMetricsListener metricsListener;
+        private boolean isDeferBind;
+        private RowHeightCache rowHeightCache;
+        private TextLayoutCache textLayoutCache;
+        private TextLayoutCache.TextSource textSource;
+        /**
+         * 按id保存的条目状态(比如展开/收起)
+         */
+        private final LongSparseArray<Object> itemStates = new LongSparseArray<>();
+        /**
+         * 只绑定了占位内容的条目
+         */
+        private final HashSet<RecyclerView.ViewHolder> deferredHolders = new HashSet<>();
+        private RefreshItemCounter itemCounter;
+        private RefreshItemDispatcher itemDispatcher;
+        /**
+         * 最近一次从内部适配器得到的数据数量,用于判断emptyView的切换
+         */
+        private int observedDataCount;
+        private boolean isForwarding;
+        private final RecyclerView.AdapterDataObserver internalObserver = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                isForwarding = true;
+                syncDataCount();
+                invalidateRowHeights();
+                notifyDataSetChanged();
+                isForwarding = false;
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                precomputeText(positionStart, itemCount);
+                isForwarding = true;
+                notifyItemRangeChanged(positionStart + itemCounter.getDataOffset(), itemCount, payload);
+                isForwarding = false;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                precomputeText(positionStart, itemCount);
+                isForwarding = true;
+                int oldDataCount = observedDataCount;
+                int newDataCount = syncDataCount();
+                invalidateRowHeights();
+                if (itemCounter.isEmpty(oldDataCount) && newDataCount > 0) {
+                    notifyItemRemoved(0);
+                    notifyItemRangeInserted(0, itemCounter.getItemCount(newDataCount));
+                } else {
+                    notifyItemRangeInserted(positionStart + itemCounter.getDataOffset(), itemCount);
+                }
+                isForwarding = false;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                isForwarding = true;
+                int oldDataCount = observedDataCount;
+                int newDataCount = syncDataCount();
+                invalidateRowHeights();
+                if (itemCounter.isEmpty(newDataCount) && oldDataCount > 0) {
+                    notifyItemRangeRemoved(0, itemCounter.getItemCount(oldDataCount));
+                    notifyItemInserted(0);
+                } else {
+                    notifyItemRangeRemoved(positionStart + itemCounter.getDataOffset(), itemCount);
+                }
+                isForwarding = false;
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                isForwarding = true;
+                invalidateRowHeights();
+                if (itemCount == 1) {
+                    int offset = itemCounter.getDataOffset();
+                    notifyItemMoved(fromPosition + offset, toPosition + offset);
+                } else {
+                    notifyDataSetChanged();
+                }
+                isForwarding = false;
+            }
+        };
+        /**
+         * 直接通知本适配器刷新时(而不是通知内部适配器),重新读取数据数量
+         */
+        private final RecyclerView.AdapterDataObserver selfObserver = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                onSelfNotified();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                onSelfNotified();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                onSelfNotified();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                onSelfNotified();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                onSelfNotified();
+            }
+        };
 
 
         public RefreshAdapter(RecyclerView.Adapter mInternalAdapter, View footerView, View emptyView) {
+            this(mInternalAdapter, null, footerView, emptyView);
+        }
+
+        /**
+         * @param mInternalAdapter
+         * @param headerView       向上加载更早数据时显示的view,为null时不能向上加载
+         * @param footerView       加载更多时显示的view,为null时不能加载更多
+         * @param emptyView        数据为空时显示的view
+         */
+        public RefreshAdapter(RecyclerView.Adapter mInternalAdapter, View headerView, View footerView, View emptyView) {
             if (mInternalAdapter == null) {
                 try {
                     throw new Exception("adapter is null");
@@ -396,6 +2086,12 @@ public class RefreshRecyclerView extends LinearLayout {
                 return;
             }
             this.mInternalAdapter = mInternalAdapter;
+            if (headerView != null) {
+                headerView.setVisibility(GONE);
+                this.headerView = headerView;
+                isLoadPreviousEnable = true;
+                headerViewHolder = new HeaderViewHolder(headerView);
+            }
             if (footerView != null) {
                 footerView.setVisibility(GONE);
                 this.footerView = footerView;
@@ -405,71 +2101,574 @@ public class RefreshRecyclerView extends LinearLayout {
             if (emptyView != null) {
                 emptyViewHolder = new EmptyViewHolder(emptyView);
             }
+            itemCounter = new RefreshItemCounter(new RefreshItemCounter.Source() {
+                @Override
+                public int getDataCount() {
+                    return RefreshAdapter.this.mInternalAdapter.getItemCount();
+                }
+            }, isLoadPreviousEnable, isLoadMoreEnable, emptyViewHolder != null);
+            itemCounter.setCacheEnable(true);
+            itemDispatcher = new RefreshItemDispatcher(itemCounter, new RefreshItemDispatcher.Delegate() {
+                @Override
+                public int getDataItemViewType(int dataPosition) {
+                    return RefreshAdapter.this.mInternalAdapter.getItemViewType(dataPosition);
+                }
+
+                @Override
+                public long getDataItemId(int dataPosition) {
+                    return RefreshAdapter.this.mInternalAdapter.getItemId(dataPosition);
+                }
+            }, typeHeader, typeFooter, typeEmpty);
+            observedDataCount = mInternalAdapter.getItemCount();
+            //注册监听之后不能再修改
+            setHasStableIds(mInternalAdapter.hasStableIds());
+            mInternalAdapter.registerAdapterDataObserver(internalObserver);
+            registerAdapterDataObserver(selfObserver);
+        }
+
+        /**
+         * 内部适配器的数据发生变化,重新读取数据数量
+         */
+        private int syncDataCount() {
+            itemCounter.invalidate();
+            observedDataCount = itemCounter.getDataCount();
+            return observedDataCount;
+        }
+
+        private void onSelfNotified() {
+            if (!isForwarding) {
+                syncDataCount();
+            }
+        }
+
+        /**
+         * 是否缓存条目的测量高度,内部适配器有stable id时按id缓存,数据变化后仍然有效,否则按位置缓存,数据变化时清空
+         *
+         * @param enable
+         * @return
+         */
+        public RefreshAdapter setRowHeightCacheEnable(boolean enable) {
+            if (!enable) {
+                rowHeightCache = null;
+            } else if (rowHeightCache == null) {
+                rowHeightCache = new RowHeightCache();
+            }
+            return this;
+        }
+
+        RowHeightCache getRowHeightCache() {
+            return rowHeightCache;
+        }
+
+        /**
+         * 数据在高度缓存中的key
+         */
+        long getRowKey(int dataPosition) {
+            return mInternalAdapter.hasStableIds() ? mInternalAdapter.getItemId(dataPosition) : dataPosition;
+        }
+
+        /**
+         * 按数据的id保存条目状态(比如展开/收起),下拉刷新后仍然存在的条目保留状态
+         * 内部适配器没有stable id时按位置保存,下拉刷新后清空
+         *
+         * @param dataPosition 数据的位置
+         * @param state        为null时删除
+         */
+        public void setItemState(int dataPosition, Object state) {
+            long key = getRowKey(dataPosition);
+            if (state == null) {
+                itemStates.remove(key);
+            } else {
+                itemStates.put(key, state);
+            }
+        }
+
+        /**
+         * 获取{@link #setItemState(int, Object)}保存的状态,一般在绑定时调用
+         *
+         * @param dataPosition 数据的位置
+         * @return
+         */
+        public Object getItemState(int dataPosition) {
+            return itemStates.size() == 0 ? null : itemStates.get(getRowKey(dataPosition));
+        }
+
+        /**
+         * 下拉刷新后删除已经不存在的条目的状态
+         */
+        void retainItemStates() {
+            int stateCount = itemStates.size();
+            if (stateCount == 0) {
+                return;
+            }
+            if (!mInternalAdapter.hasStableIds()) {
+                itemStates.clear();
+                return;
+            }
+            boolean[] retained = new boolean[stateCount];
+            for (int i = 0, count = mInternalAdapter.getItemCount(); i < count; i++) {
+                int index = itemStates.indexOfKey(mInternalAdapter.getItemId(i));
+                if (index >= 0) {
+                    retained[index] = true;
+                }
+            }
+            for (int i = stateCount - 1; i >= 0; i--) {
+                if (!retained[i]) {
+                    itemStates.removeAt(i);
+                }
+            }
+        }
+
+        /**
+         * 按位置缓存的高度在数据插入,删除,移动后不再对应
+         */
+        private void invalidateRowHeights() {
+            if (rowHeightCache != null && !mInternalAdapter.hasStableIds()) {
+                rowHeightCache.clear();
+            }
+        }
+
+        /**
+         * 设置文字预先计算,内部适配器插入或更新数据时,在后台线程计算这些数据的文字排版
+         * 绑定时通过{@link TextLayoutCache#get(CharSequence)}获取并交给{@link TextLayoutView},传null关闭
+         *
+         * @param cache
+         * @param source 按数据的位置提供文字,在主线程调用
+         * @return
+         */
+        public RefreshAdapter setTextPrecompute(TextLayoutCache cache, TextLayoutCache.TextSource source) {
+            this.textLayoutCache = source == null ? null : cache;
+            this.textSource = cache == null ? null : source;
+            return this;
+        }
+
+        /**
+         * 收集范围内还没有计算的文字,交给后台线程
+         */
+        private void precomputeText(int positionStart, int itemCount) {
+            if (textLayoutCache == null || textLayoutCache.getWidth() <= 0) {
+                return;
+            }
+            ArrayList<CharSequence> texts = new ArrayList<>(itemCount);
+            for (int i = positionStart, end = positionStart + itemCount; i < end; i++) {
+                CharSequence text = textSource.getText(i);
+                if (text != null && !textLayoutCache.contains(text)) {
+                    texts.add(text);
+                }
+            }
+            textLayoutCache.precomputeAsync(texts);
+        }
+
+        void setMetricsListener(OnMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+        }
+
+        void setDeferBind(boolean deferBind) {
+            this.isDeferBind = deferBind;
+        }
+
+        /**
+         * 只绑定了占位内容并且还在显示的条目重新绑定完整内容
+         */
+        void rebindDeferred() {
+            if (deferredHolders.isEmpty()) {
+                return;
+            }
+            RecyclerView.ViewHolder[] holders = deferredHolders.toArray(new RecyclerView.ViewHolder[deferredHolders.size()]);
+            deferredHolders.clear();
+            for (RecyclerView.ViewHolder holder : holders) {
+                int position = holder.getAdapterPosition();
+                if (isDataPosition(position)) {
+                    notifyItemChanged(position, PAYLOAD_DEFERRED_BIND);
+                }
+            }
+        }
+
+        @Override
+        public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+            setupLayoutManager(recyclerView.getLayoutManager());
+            mInternalAdapter.onAttachedToRecyclerView(recyclerView);
+        }
+
+        @Override
+        public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+            mInternalAdapter.onDetachedFromRecyclerView(recyclerView);
+        }
+
+        /**
+         * GridLayoutManager中header,footer和emptyView占满一行,数据条目使用原来的SpanSizeLookup
+         */
+        void setupLayoutManager(RecyclerView.LayoutManager layoutManager) {
+            if (layoutManager instanceof GridLayoutManager) {
+                GridLayoutManager manager = (GridLayoutManager) layoutManager;
+                GridLayoutManager.SpanSizeLookup lookup = manager.getSpanSizeLookup();
+                if (lookup instanceof FullSpanSizeLookup) {
+                    lookup = ((FullSpanSizeLookup) lookup).dataLookup;
+                }
+                manager.setSpanSizeLookup(new FullSpanSizeLookup(this, manager, lookup));
+            }
+        }
+
+        /**
+         * StaggeredGridLayoutManager中header,footer和emptyView占满一行
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+            if (isSingleViewType(holder.getItemViewType())) {
+                ViewGroup.LayoutParams params = holder.itemView.getLayoutParams();
+                if (params instanceof StaggeredGridLayoutManager.LayoutParams) {
+                    ((StaggeredGridLayoutManager.LayoutParams) params).setFullSpan(true);
+                }
+            } else {
+                mInternalAdapter.onViewAttachedToWindow(holder);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+            if (!isSingleViewType(holder.getItemViewType())) {
+                mInternalAdapter.onViewDetachedFromWindow(holder);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onViewRecycled(RecyclerView.ViewHolder holder) {
+            deferredHolders.remove(holder);
+            if (!isSingleViewType(holder.getItemViewType())) {
+                mInternalAdapter.onViewRecycled(holder);
+            }
+        }
+
+        /**
+         * header,footer和emptyView只有一个实例,不能预先创建
+         */
+        boolean isSingleViewType(int viewType) {
+            return viewType == typeEmpty || viewType == typeFooter || viewType == typeHeader;
         }
 
         @Override
         public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-            if (viewType == TYPE_EMPTY) {
+            if (viewType == typeEmpty) {
                 return emptyViewHolder;
             }
-            if (viewType == TYPE_FOOTER) {
+            if (viewType == typeFooter) {
                 return footerViewHolder;
             }
-            return mInternalAdapter.onCreateViewHolder(parent, viewType);
+            if (viewType == typeHeader) {
+                return headerViewHolder;
+            }
+            RecyclerView.ViewHolder holder;
+            if (metricsListener == null) {
+                holder = mInternalAdapter.onCreateViewHolder(parent, viewType);
+            } else {
+                long start = System.nanoTime();
+                holder = mInternalAdapter.onCreateViewHolder(parent, viewType);
+                metricsListener.onCreateViewHolder(viewType, System.nanoTime() - start);
+            }
+            recordOwnClickListeners(holder);
+            return holder;
+        }
 
+        /**
+         * 记录内部适配器创建条目时自己设置的点击和长按监听,这些条目不设置分发监听
+         */
+        private void recordOwnClickListeners(RecyclerView.ViewHolder holder) {
+            View itemView = holder.itemView;
+            boolean ownClick = Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1
+                    ? itemView.hasOnClickListeners() : itemView.isClickable();
+            int flags = (ownClick ? FLAG_OWN_CLICK : 0)
+                    | (itemView.isLongClickable() ? FLAG_OWN_LONG_CLICK : 0)
+                    | (itemView.isClickable() ? FLAG_CLICKABLE : 0);
+            clickFlags.put(holder, flags);
+        }
 
+        /**
+         * 按当前的点击模式设置或去掉分发监听,条目自己的监听不会被覆盖
+         * 在内部适配器绑定之前调用,绑定时内部适配器设置的监听优先
+         */
+        void updateItemClickDispatcher(RecyclerView.ViewHolder holder) {
+            Integer value = clickFlags.get(holder);
+            if (value == null) {
+                //header,footer和emptyView
+                return;
+            }
+            int flags = value;
+            View itemView = holder.itemView;
+            if ((flags & FLAG_OWN_CLICK) == 0) {
+                if (itemClickDispatcher != null) {
+                    itemView.setOnClickListener(itemClickDispatcher);
+                    flags |= FLAG_CLICK_DISPATCHED;
+                } else if ((flags & FLAG_CLICK_DISPATCHED) != 0) {
+                    itemView.setOnClickListener(null);
+                    itemView.setClickable((flags & FLAG_CLICKABLE) != 0);
+                    flags &= ~FLAG_CLICK_DISPATCHED;
+                }
+            }
+            if ((flags & FLAG_OWN_LONG_CLICK) == 0) {
+                if (itemLongClickDispatcher != null) {
+                    itemView.setOnLongClickListener(itemLongClickDispatcher);
+                    flags |= FLAG_LONG_CLICK_DISPATCHED;
+                } else if ((flags & FLAG_LONG_CLICK_DISPATCHED) != 0) {
+                    itemView.setOnLongClickListener(null);
+                    itemView.setLongClickable(false);
+                    flags &= ~FLAG_LONG_CLICK_DISPATCHED;
+                }
+            }
+            if (flags != value) {
+                clickFlags.put(holder, flags);
+            }
         }
 
         @Override
         public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-            if (position < mInternalAdapter.getItemCount()) {
-                mInternalAdapter.onBindViewHolder(holder, position);
+            position = itemDispatcher.getBindPosition(position);
+            if (position != RefreshItemDispatcher.NO_POSITION) {
+                updateItemClickDispatcher(holder);
+                if (isDeferBind && mInternalAdapter instanceof DeferredBinder) {
+                    ((DeferredBinder) mInternalAdapter).onBindPlaceholder(holder, position);
+                    deferredHolders.add(holder);
+                } else {
+                    if (!deferredHolders.isEmpty()) {
+                        deferredHolders.remove(holder);
+                    }
+                    if (metricsListener == null) {
+                        mInternalAdapter.onBindViewHolder(holder, position);
+                    } else {
+                        long start = System.nanoTime();
+                        mInternalAdapter.onBindViewHolder(holder, position);
+                        metricsListener.onBindViewHolder(holder.getItemViewType(), System.nanoTime() - start);
+                    }
+                }
             }
 
         }
 
+        /**
+         * 带payload的局部更新交给内部适配器,延迟绑定相关的情况完整绑定
+         */
         @Override
-        public int getItemCount() {
-            int count = mInternalAdapter.getItemCount();
-            if (count == 0 && emptyViewHolder != null) {
-                isEmptyStatus = true;
-                status = STATUS_EMPTY;
-                return 1;
+        @SuppressWarnings("unchecked")
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+            if (payloads.isEmpty() || !isDataPosition(position) || isDeferBind
+                    || payloads.contains(PAYLOAD_DEFERRED_BIND) || deferredHolders.contains(holder)) {
+                onBindViewHolder(holder, position);
+                return;
             }
-            isEmptyStatus = false;
-            if (isLoadMoreEnable) {
-                count++;
+            position -= itemCounter.getDataOffset();
+            if (metricsListener == null) {
+                mInternalAdapter.onBindViewHolder(holder, position, payloads);
+            } else {
+                long start = System.nanoTime();
+                mInternalAdapter.onBindViewHolder(holder, position, payloads);
+                metricsListener.onBindViewHolder(holder.getItemViewType(), System.nanoTime() - start);
             }
-            return count;
+        }
+
+        @Override
+        public int getItemCount() {
+            return itemCounter.getItemCount(itemCounter.getDataCount());
+        }
+
+        /**
+         * 内部适配器有stable id时(需要在创建RefreshAdapter之前设置)转发,header,footer和emptyView使用保留的id
+         */
+        @Override
+        public long getItemId(int position) {
+            return itemDispatcher.getItemId(position);
         }
 
 
         @Override
         public int getItemViewType(int position) {
-            if (isEmptyStatus && mInternalAdapter.getItemCount() == 0) {
-                return TYPE_EMPTY;
-            }
-            if (isLoadMoreEnable && position + 1 == getItemCount()) {
-                return TYPE_FOOTER;
-            }
-            return mInternalAdapter.getItemViewType(position);
+            return itemDispatcher.getItemViewType(position);
         }
 
 
+        /**
+         * 获取状态,数据为空且设置了emptyView时为{@link #STATUS_EMPTY}
+         *
+         * @return
+         */
         public int getStatus() {
-            return status;
+            return isEmptyStatus() ? STATUS_EMPTY : STATUS_NORMAL;
         }
 
+        /**
+         * 状态由内部适配器的数据自动计算,保留该方法只为兼容
+         *
+         * @param status
+         * @return
+         */
+        @Deprecated
         public RefreshAdapter setStatus(int status) {
-            this.status = status;
             return this;
         }
 
+        /**
+         * 是否正在显示emptyView
+         *
+         * @return
+         */
+        public boolean isEmptyStatus() {
+            return itemCounter.isEmpty(itemCounter.getDataCount());
+        }
+
+        /**
+         * 获取数据的数量(不包含header,footer和emptyView)
+         *
+         * @return
+         */
+        public int getDataCount() {
+            return itemCounter.getDataCount();
+        }
+
+        /**
+         * 获取内部适配器,数据变化时通知内部适配器即可,header,footer和emptyView的位置会自动处理
+         *
+         * @return
+         */
+        public RecyclerView.Adapter getInternalAdapter() {
+            return mInternalAdapter;
+        }
+
         public View getFooterView() {
             return footerView;
         }
+
+        public View getHeaderView() {
+            return headerView;
+        }
+
+        /**
+         * 适配器中的位置转换为数据的位置
+         *
+         * @param position
+         * @return
+         */
+        public int getDataPosition(int position) {
+            return position - itemCounter.getDataOffset();
+        }
+
+        /**
+         * 数据的位置转换为适配器中的位置
+         *
+         * @param dataPosition
+         * @return
+         */
+        public int getAdapterPosition(int dataPosition) {
+            return dataPosition + itemCounter.getDataOffset();
+        }
+
+        /**
+         * 是否是数据条目(不是header,footer和emptyView)
+         */
+        boolean isDataPosition(int position) {
+            return itemDispatcher.getBindPosition(position) != RefreshItemDispatcher.NO_POSITION;
+        }
+
+        /**
+         * 设置绑定时给条目设置的点击和长按监听,只在{@link #CLICK_MODE_BIND}下使用
+         */
+        void setItemClickDispatcher(View.OnClickListener clickDispatcher, View.OnLongClickListener longClickDispatcher) {
+            boolean changed = itemClickDispatcher != clickDispatcher || itemLongClickDispatcher != longClickDispatcher;
+            this.itemClickDispatcher = clickDispatcher;
+            this.itemLongClickDispatcher = longClickDispatcher;
+            if (changed) {
+                notifyItemRangeChanged(itemCounter.getDataOffset(), itemCounter.getDataCount());
+            }
+        }
+    }
+
+    /**
+     * 开启高度缓存时,按缓存的平均高度计算滚动条的范围和位置,高度差别很大的条目滑入时滚动条不会跳动
+     */
+    private class InnerRecyclerView extends RecyclerView {
+
+        InnerRecyclerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public int computeVerticalScrollRange() {
+            int averageHeight = getCachedAverageHeight();
+            if (averageHeight <= 0) {
+                return super.computeVerticalScrollRange();
+            }
+            return Math.max(averageHeight * mAdapter.getDataCount(), computeVerticalScrollExtent());
+        }
+
+        @Override
+        public int computeVerticalScrollOffset() {
+            int averageHeight = getCachedAverageHeight();
+            if (averageHeight <= 0) {
+                return super.computeVerticalScrollOffset();
+            }
+            for (int i = 0, count = getChildCount(); i < count; i++) {
+                View child = getChildAt(i);
+                int position = getChildLayoutPosition(child);
+                if (mAdapter.isDataPosition(position)) {
+                    int scrolled = getPaddingTop() - getLayoutManager().getDecoratedTop(child);
+                    return Math.max(0, mAdapter.getDataPosition(position) * averageHeight + scrolled);
+                }
+            }
+            return super.computeVerticalScrollOffset();
+        }
+
+        @Override
+        public int computeVerticalScrollExtent() {
+            if (getCachedAverageHeight() <= 0) {
+                return super.computeVerticalScrollExtent();
+            }
+            return getHeight() - getPaddingTop() - getPaddingBottom();
+        }
+
+        /**
+         * 只支持VERTICAL的LinearLayoutManager,不能使用时返回0
+         */
+        private int getCachedAverageHeight() {
+            RowHeightCache cache = mAdapter == null ? null : mAdapter.getRowHeightCache();
+            LayoutManager manager = getLayoutManager();
+            if (cache == null || !(manager instanceof LinearLayoutManager) || manager instanceof GridLayoutManager
+                    || ((LinearLayoutManager) manager).getOrientation() != LinearLayoutManager.VERTICAL) {
+                return 0;
+            }
+            return cache.getAverageHeight();
+        }
+    }
+
+    /**
+     * header,footer和emptyView占满一行,数据条目按数据的位置交给原来的SpanSizeLookup
+     */
+    static class FullSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+        private final RefreshAdapter adapter;
+        private final GridLayoutManager manager;
+        private final GridLayoutManager.SpanSizeLookup dataLookup;
+
+        FullSpanSizeLookup(RefreshAdapter adapter, GridLayoutManager manager, GridLayoutManager.SpanSizeLookup dataLookup) {
+            this.adapter = adapter;
+            this.manager = manager;
+            this.dataLookup = dataLookup;
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            if (!adapter.isDataPosition(position)) {
+                return manager.getSpanCount();
+            }
+            return dataLookup.getSpanSize(adapter.getDataPosition(position));
+        }
+    }
+
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        public HeaderViewHolder(View itemView) {
+            super(itemView);
+        }
     }
 
+
     static class FooterViewHolder extends RecyclerView.ViewHolder {
         public FooterViewHolder(View itemView) {
             super(itemView);
@@ -0,0 +1,103 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * 条目测量高度的缓存,key为条目的stable id(没有stable id时为数据的位置)
+ * 开放寻址的long[]和int[],不装箱,平均高度O(1)
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+final class RowHeightCache {
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    /**
+     * 高度+1,0表示空位
+     */
+    private int[] values;
+    private int size;
+    private long totalHeight;
+
+    RowHeightCache() {
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * 保存条目的高度,已有的会被覆盖
+     */
+    void put(long key, int height) {
+        if (height < 0) {
+            return;
+        }
+        int index = indexOf(keys, values, key);
+        if (values[index] != 0) {
+            totalHeight += height - (values[index] - 1);
+            values[index] = height + 1;
+            return;
+        }
+        keys[index] = key;
+        values[index] = height + 1;
+        totalHeight += height;
+        size++;
+        //装载因子超过0.5时扩容
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * 获取条目的高度,没有时返回defaultHeight
+     */
+    int get(long key, int defaultHeight) {
+        int value = values[indexOf(keys, values, key)];
+        return value == 0 ? defaultHeight : value - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 所有缓存高度的平均值,没有缓存时返回0
+     */
+    int getAverageHeight() {
+        return size == 0 ? 0 : (int) (totalHeight / size);
+    }
+
+    void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, 0);
+        size = 0;
+        totalHeight = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int index = indexOf(keys, values, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 线性探测,返回key所在的位置或第一个空位
+     */
+    private static int indexOf(long[] keys, int[] values, long key) {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+        while (values[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
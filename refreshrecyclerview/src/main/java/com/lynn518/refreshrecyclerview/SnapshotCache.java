@@ -0,0 +1,442 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 列表快照的磁盘缓存,冷启动时先显示上次的数据和滚动位置,再用下拉刷新的结果合并
+ * 1.保存前N条数据和滚动位置(数据的位置,不是适配器中的位置),格式为:文件头(魔数,格式版本,数据版本,条数,位置,偏移,保存时间)+每条数据(长度+内容)
+ * 2.写入使用NIO的FileChannel,先写临时文件再重命名,读取使用内存映射
+ * 3.格式版本或数据版本不一致的快照直接丢弃
+ * 4.目录中所有快照的总大小超过上限时,按最近使用时间淘汰
+ * 5.*Async方法在后台线程读写,回调在主线程
+ * <pre>
+ * cache.loadAsync("feed", new SnapshotCache.LoadCallback&lt;News&gt;() {
+ *     public void onLoaded(SnapshotCache.Snapshot&lt;News&gt; snapshot) {
+ *         if (snapshot != null) {
+ *             list.addAll(snapshot.getItems());
+ *             adapter.notifyDataSetChanged();
+ *             rv.setSelectionFromTop(rv.getAdapter().getAdapterPosition(snapshot.getPosition()), snapshot.getOffset());
+ *         }
+ *         rv.pullRefresh();//刷新结果通过notifyRefreshOkAndDataChange(RefreshDiff.Callback, Runnable)合并
+ *     }
+ * });
+ * ...
+ * //有header时适配器中的位置和数据的位置不同,需要转换
+ * cache.saveAsync("feed", list, rv.getAdapter().getDataPosition(rv.getFirstVisiblePosition()), rv.getFirstVisibleTop());
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class SnapshotCache<T> {
+    /**
+     * 文件格式的版本
+     */
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x52525653;
+    private static final int HEADER_SIZE = 4 * 6 + 8;
+    private static final String SUFFIX = ".snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private final File directory;
+    private final Serializer<T> serializer;
+    private int dataVersion;
+    private int maxItemCount = 50;
+    private long maxTotalBytes = 1024 * 1024;
+    private Executor ioExecutor;
+    private Executor callbackExecutor;
+
+    /**
+     * @param directory  快照保存的目录,一般是context.getCacheDir()下的子目录
+     * @param serializer 数据的序列化方式
+     */
+    public SnapshotCache(File directory, Serializer<T> serializer) {
+        this.directory = directory;
+        this.serializer = serializer;
+    }
+
+    /**
+     * 设置数据版本,数据结构或序列化方式变化时修改,旧的快照会被丢弃
+     *
+     * @param dataVersion
+     * @return
+     */
+    public SnapshotCache<T> setDataVersion(int dataVersion) {
+        this.dataVersion = dataVersion;
+        return this;
+    }
+
+    /**
+     * 设置每个快照最多保存的条数,默认50
+     *
+     * @param maxItemCount
+     * @return
+     */
+    public SnapshotCache<T> setMaxItemCount(int maxItemCount) {
+        this.maxItemCount = maxItemCount;
+        return this;
+    }
+
+    /**
+     * 设置目录中所有快照的总大小上限,默认1M
+     *
+     * @param maxTotalBytes
+     * @return
+     */
+    public SnapshotCache<T> setMaxTotalBytes(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+        return this;
+    }
+
+    /**
+     * 设置读写文件的线程池,默认和差异计算共用一个后台线程
+     *
+     * @param executor
+     * @return
+     */
+    public SnapshotCache<T> setIoExecutor(Executor executor) {
+        this.ioExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 设置回调执行的线程,默认主线程
+     *
+     * @param executor
+     * @return
+     */
+    public SnapshotCache<T> setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * 在后台线程保存快照,数据在调用线程复制一份,序列化在后台线程进行,数据对象保存后不能再修改
+     *
+     * @param key      快照的名称
+     * @param items
+     * @param position 第一个可见数据的位置(数据的位置,用{@link RefreshRecyclerView.RefreshAdapter#getDataPosition(int)}转换)
+     * @param offset   第一个可见条目的顶部偏移
+     */
+    public void saveAsync(final String key, List<T> items, final int position, final int offset) {
+        final List<T> copy = new ArrayList<>(items.subList(0, Math.min(items.size(), maxItemCount)));
+        getIoExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save(key, copy, position, offset);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * 在后台线程读取快照,没有快照或者读取失败时回调null
+     *
+     * @param key
+     * @param callback
+     */
+    public void loadAsync(final String key, final LoadCallback<T> callback) {
+        getIoExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Snapshot<T> snapshot = null;
+                try {
+                    snapshot = load(key);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                final Snapshot<T> result = snapshot;
+                getCallbackExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onLoaded(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 保存快照,只保存前{@link #setMaxItemCount(int)}条,位置超出保存的范围时保存为最后一条
+     * 位置为数据的位置,小于0时(第一个可见的是header)保存为第一条
+     *
+     * @param key
+     * @param items
+     * @param position
+     * @param offset
+     * @throws IOException
+     */
+    public synchronized void save(String key, List<T> items, int position, int offset) throws IOException {
+        int count = Math.min(items.size(), maxItemCount);
+        byte[][] data = new byte[count][];
+        long size = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            data[i] = serializer.serialize(items.get(i));
+            size += 4 + data[i].length;
+        }
+        if (position < 0) {
+            position = 0;
+            offset = 0;
+        } else if (position >= count) {
+            position = Math.max(count - 1, 0);
+            offset = 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(dataVersion)
+                .putInt(count)
+                .putInt(position)
+                .putInt(offset)
+                .putLong(System.currentTimeMillis());
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(data[i].length).put(data[i]);
+        }
+        buffer.flip();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("can not create " + directory);
+        }
+        File temp = new File(directory, fileName(key) + TEMP_SUFFIX);
+        RandomAccessFile file = new RandomAccessFile(temp, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } finally {
+            file.close();
+        }
+        File target = getFile(key);
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("can not rename " + temp + " to " + target);
+        }
+        trimToSize(target);
+    }
+
+    /**
+     * 读取快照,没有快照或者版本不一致时返回null,读取失败的快照会被删除,下次不再读取
+     *
+     * @param key
+     * @return
+     * @throws IOException
+     */
+    public synchronized Snapshot<T> load(String key) throws IOException {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        Snapshot<T> snapshot = null;
+        boolean success = false;
+        try {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            snapshot = read(buffer);
+            success = true;
+        } catch (RuntimeException e) {
+            throw new IOException("can not read " + file, e);
+        } finally {
+            input.close();
+            if (!success) {
+                file.delete();
+            }
+        }
+        if (snapshot == null) {
+            file.delete();
+        } else {
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 删除快照
+     *
+     * @param key
+     */
+    public synchronized void remove(String key) {
+        getFile(key).delete();
+    }
+
+    /**
+     * 删除目录中所有快照
+     */
+    public synchronized void clear() {
+        File[] files = listSnapshots();
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private Snapshot<T> read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE
+                || buffer.getInt() != MAGIC
+                || buffer.getInt() != FORMAT_VERSION
+                || buffer.getInt() != dataVersion) {
+            return null;
+        }
+        int count = buffer.getInt();
+        int position = buffer.getInt();
+        int offset = buffer.getInt();
+        long savedTime = buffer.getLong();
+        if (count < 0) {
+            return null;
+        }
+        ArrayList<T> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) {
+                return null;
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            buffer.get(data);
+            items.add(serializer.deserialize(data));
+        }
+        return new Snapshot<>(items, position, offset, savedTime);
+    }
+
+    /**
+     * 总大小超过上限时,从最久没有使用的快照开始删除,刚保存的快照不删除
+     */
+    private void trimToSize(File keep) {
+        File[] files = listSnapshots();
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxTotalBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified();
+                long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && total > maxTotalBytes; i++) {
+            File file = files[i];
+            if (!file.equals(keep)) {
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                }
+            }
+        }
+    }
+
+    private File[] listSnapshots() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        ArrayList<File> snapshots = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                snapshots.add(file);
+            }
+        }
+        return snapshots.toArray(new File[snapshots.size()]);
+    }
+
+    private File getFile(String key) {
+        return new File(directory, fileName(key));
+    }
+
+    /**
+     * key中不能作为文件名的字符替换为'_'
+     */
+    private static String fileName(String key) {
+        StringBuilder builder = new StringBuilder(key.length() + SUFFIX.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.') {
+                builder.append(c);
+            } else {
+                builder.append('_');
+            }
+        }
+        return builder.append(SUFFIX).toString();
+    }
+
+    private Executor getIoExecutor() {
+        return ioExecutor != null ? ioExecutor : RefreshExecutors.background();
+    }
+
+    private Executor getCallbackExecutor() {
+        return callbackExecutor != null ? callbackExecutor : RefreshExecutors.mainThread();
+    }
+
+    /**
+     * 数据的序列化方式
+     */
+    public interface Serializer<T> {
+        byte[] serialize(T item) throws IOException;
+
+        T deserialize(byte[] data) throws IOException;
+    }
+
+    /**
+     * 读取快照的回调
+     */
+    public interface LoadCallback<T> {
+        /**
+         * @param snapshot 没有快照时为null
+         */
+        void onLoaded(Snapshot<T> snapshot);
+    }
+
+    /**
+     * 一份快照
+     */
+    public static class Snapshot<T> {
+        private final List<T> items;
+        private final int position;
+        private final int offset;
+        private final long savedTime;
+
+        Snapshot(List<T> items, int position, int offset, long savedTime) {
+            this.items = items;
+            this.position = position;
+            this.offset = offset;
+            this.savedTime = savedTime;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * 保存时间(毫秒)
+         */
+        public long getSavedTime() {
+            return savedTime;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
+
+/**
+ * 分组列表的悬停标题,标题不作为适配器的条目,全部由ItemDecoration绘制
+ * 1.每组第一个条目上方留出标题的高度并绘制标题,列表顶部绘制当前组的悬停标题,下一组的标题到达时把它推上去
+ * 2.分组通过{@link SectionProvider}提供,按起始位置二分查找,数千条数据和数百个分组也只需要O(log n)
+ * 3.标题view按分组id缓存在一个很小的LRU中(默认4个),一屏中的分组多于缓存时自动扩大,被淘汰的view交给{@link SectionProvider#getHeaderView}复用
+ * 4.位置均为数据的位置,和{@link RefreshRecyclerView.RefreshAdapter}一起使用时跳过header,footer和emptyView
+ * 5.适配器插入/删除/移动数据时自动重建分组索引,只是内容变化时分组不变,标题内容变化时调用{@link #invalidateHeaders()}
+ * 6.通过{@link #attachToRecyclerView(RecyclerView)}添加和移除,移除时取消对适配器的监听
+ * 只适用于VERTICAL的LinearLayoutManager
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+    private static final int DEFAULT_CACHE_SIZE = 4;
+    private final SectionProvider provider;
+    private long[] cacheIds;
+    private View[] cacheViews;
+    private long[] cacheUsed;
+    private long useCounter;
+    private int[] sectionStarts = new int[0];
+    private int sectionCount;
+    private boolean isIndexValid;
+    private RecyclerView recyclerView;
+    private RecyclerView.Adapter observedAdapter;
+    private final RecyclerView.AdapterDataObserver dataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            isIndexValid = false;
+            invalidateHeaders();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            isIndexValid = false;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            isIndexValid = false;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            isIndexValid = false;
+        }
+    };
+
+    public StickyHeaderDecoration(SectionProvider provider) {
+        this(provider, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param provider
+     * @param cacheSize 缓存的标题view的初始数量,至少为2(悬停标题和推上来的下一个标题)
+     */
+    public StickyHeaderDecoration(SectionProvider provider, int cacheSize) {
+        this.provider = provider;
+        cacheSize = Math.max(cacheSize, 2);
+        cacheIds = new long[cacheSize];
+        cacheViews = new View[cacheSize];
+        cacheUsed = new long[cacheSize];
+    }
+
+    /**
+     * 添加到RecyclerView,传null时移除并取消对适配器的监听
+     *
+     * @param recyclerView
+     */
+    public void attachToRecyclerView(RecyclerView recyclerView) {
+        if (this.recyclerView == recyclerView) {
+            return;
+        }
+        if (this.recyclerView != null) {
+            this.recyclerView.removeItemDecoration(this);
+        }
+        observeAdapter(null);
+        this.recyclerView = recyclerView;
+        if (recyclerView != null) {
+            recyclerView.addItemDecoration(this);
+            observeAdapter(recyclerView.getAdapter());
+        }
+    }
+
+    /**
+     * 分组发生变化(但没有通知适配器)时调用,重建分组索引
+     */
+    public void invalidateSections() {
+        isIndexValid = false;
+    }
+
+    /**
+     * 标题内容发生变化时调用,清空缓存的标题view,下次绘制时重新获取
+     */
+    public void invalidateHeaders() {
+        for (int i = 0; i < cacheViews.length; i++) {
+            cacheUsed[i] = 0;
+        }
+    }
+
+    @Override
+    public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
+        int position = getDataPosition(parent, parent.getChildAdapterPosition(view));
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        ensureIndex(parent);
+        int section = findSection(position);
+        if (section >= 0 && sectionStarts[section] == position) {
+            outRect.top = getHeader(parent, section).getHeight();
+        }
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        ensureIndex(parent);
+        if (sectionCount == 0) {
+            return;
+        }
+        //每个可见的分组标题加上悬停标题,缓存放不下时每一帧都会淘汰并重新获取
+        ensureCacheSize(countVisibleSectionStarts(parent) + 1);
+        int top = parent.getPaddingTop();
+        int stickySection = -1;
+        View stickyChild = null;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            View child = parent.getChildAt(i);
+            int position = getDataPosition(parent, parent.getChildAdapterPosition(child));
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            int section = findSection(position);
+            if (section < 0) {
+                continue;
+            }
+            if (stickyChild == null && child.getBottom() > top) {
+                stickySection = section;
+                stickyChild = child;
+            }
+            if (sectionStarts[section] == position) {
+                //组内第一个条目上方的标题
+                View header = getHeader(parent, section);
+                drawHeader(c, header, child.getTop() - header.getHeight());
+            }
+        }
+        if (stickyChild == null) {
+            return;
+        }
+        View header = getHeader(parent, stickySection);
+        int headerTop = top;
+        //下一组的标题推着当前的悬停标题向上移动
+        int nextSection = stickySection + 1;
+        if (nextSection < sectionCount) {
+            int nextStart = sectionStarts[nextSection];
+            for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+                View child = parent.getChildAt(i);
+                if (getDataPosition(parent, parent.getChildAdapterPosition(child)) == nextStart) {
+                    int nextHeaderTop = child.getTop() - getHeader(parent, nextSection).getHeight();
+                    headerTop = Math.min(top, nextHeaderTop - header.getHeight());
+                    break;
+                }
+            }
+        }
+        drawHeader(c, header, headerTop);
+    }
+
+    /**
+     * 可见的条目中分组第一个条目的数量
+     */
+    private int countVisibleSectionStarts(RecyclerView parent) {
+        int starts = 0;
+        for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+            int position = getDataPosition(parent, parent.getChildAdapterPosition(parent.getChildAt(i)));
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            int section = findSection(position);
+            if (section >= 0 && sectionStarts[section] == position) {
+                starts++;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * 缓存不够一帧使用时扩大,已缓存的标题view保留
+     */
+    private void ensureCacheSize(int size) {
+        if (size <= cacheViews.length) {
+            return;
+        }
+        cacheIds = Arrays.copyOf(cacheIds, size);
+        cacheViews = Arrays.copyOf(cacheViews, size);
+        cacheUsed = Arrays.copyOf(cacheUsed, size);
+    }
+
+    private void drawHeader(Canvas c, View header, int top) {
+        int saveCount = c.save();
+        c.translate(header.getLeft(), top);
+        header.draw(c);
+        c.restoreToCount(saveCount);
+    }
+
+    /**
+     * 适配器中的位置转换为数据的位置,不是数据条目时返回{@link RecyclerView#NO_POSITION}
+     */
+    private int getDataPosition(RecyclerView parent, int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return RecyclerView.NO_POSITION;
+        }
+        RecyclerView.Adapter adapter = parent.getAdapter();
+        if (adapter instanceof RefreshRecyclerView.RefreshAdapter) {
+            RefreshRecyclerView.RefreshAdapter refreshAdapter = (RefreshRecyclerView.RefreshAdapter) adapter;
+            return refreshAdapter.isDataPosition(position) ? refreshAdapter.getDataPosition(position) : RecyclerView.NO_POSITION;
+        }
+        return position;
+    }
+
+    /**
+     * 监听的适配器变化时,取消对旧适配器的监听
+     */
+    private void observeAdapter(RecyclerView.Adapter adapter) {
+        if (adapter == observedAdapter) {
+            return;
+        }
+        if (observedAdapter != null) {
+            observedAdapter.unregisterAdapterDataObserver(dataObserver);
+        }
+        observedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(dataObserver);
+        }
+        isIndexValid = false;
+    }
+
+    /**
+     * 适配器变化(setAdapter)时重新注册监听,分组变化时重建索引
+     */
+    private void ensureIndex(RecyclerView parent) {
+        observeAdapter(parent.getAdapter());
+        if (isIndexValid) {
+            return;
+        }
+        sectionCount = provider.getSectionCount();
+        if (sectionStarts.length < sectionCount) {
+            sectionStarts = new int[sectionCount];
+        }
+        for (int i = 0; i < sectionCount; i++) {
+            sectionStarts[i] = provider.getSectionStart(i);
+        }
+        isIndexValid = true;
+    }
+
+    /**
+     * 二分查找数据所在的分组(起始位置不大于position的最后一个分组),在第一个分组之前时返回-1
+     */
+    private int findSection(int position) {
+        int low = 0;
+        int high = sectionCount - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sectionStarts[mid] <= position) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从LRU缓存获取分组的标题view,没有时复用最久没有使用的view重新获取并测量
+     */
+    private View getHeader(RecyclerView parent, int section) {
+        long id = provider.getSectionId(section);
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        int oldest = 0;
+        for (int i = 0; i < cacheViews.length; i++) {
+            if (cacheUsed[i] != 0 && cacheIds[i] == id) {
+                if (cacheViews[i].getWidth() == width) {
+                    cacheUsed[i] = ++useCounter;
+                    return cacheViews[i];
+                }
+                //列表宽度变化,重新测量
+                oldest = i;
+                break;
+            }
+            if (cacheUsed[i] < cacheUsed[oldest]) {
+                oldest = i;
+            }
+        }
+        View header = provider.getHeaderView(section, cacheViews[oldest], parent);
+        if (header.getLayoutParams() == null) {
+            header.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        }
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        int heightSpec = ViewGroup.getChildMeasureSpec(View.MeasureSpec.makeMeasureSpec(parent.getHeight(), View.MeasureSpec.UNSPECIFIED),
+                0, header.getLayoutParams().height);
+        header.measure(widthSpec, heightSpec);
+        header.layout(parent.getPaddingLeft(), 0, parent.getPaddingLeft() + header.getMeasuredWidth(), header.getMeasuredHeight());
+        cacheIds[oldest] = id;
+        cacheViews[oldest] = header;
+        cacheUsed[oldest] = ++useCounter;
+        return header;
+    }
+
+    /**
+     * 分组信息和标题view的提供者,位置均为数据的位置
+     */
+    public interface SectionProvider {
+        int getSectionCount();
+
+        /**
+         * 分组第一条数据的位置,必须按分组顺序递增
+         */
+        int getSectionStart(int section);
+
+        /**
+         * 分组的唯一id,用于缓存标题view
+         */
+        long getSectionId(int section);
+
+        /**
+         * 获取并绑定分组的标题view
+         *
+         * @param section
+         * @param convertView 可以复用的view,可能为null
+         * @param parent
+         * @return
+         */
+        View getHeaderView(int section, View convertView, ViewGroup parent);
+    }
+}
@@ -0,0 +1,202 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 在后台线程预先计算文字的StaticLayout,绑定时只需要把计算好的Layout交给{@link TextLayoutView}
+ * 1.宽度为条目中文字区域的宽度,通过{@link #setWidth(int)}设置,宽度变化时清空缓存
+ * 2.结果按文字缓存在LRU中,超过数量时淘汰最久没有使用的
+ * 3.{@link #get(CharSequence)}没有命中时在当前线程计算并缓存,不会返回null
+ * 4.通过{@link RefreshRecyclerView.RefreshAdapter#setTextPrecompute(TextLayoutCache, TextSource)}设置后,
+ * 新插入的数据(下拉刷新,加载更多)自动在后台计算,也可以在{@link RefreshLoader#load(int, RefreshLoader.Request)}中直接调用{@link #precompute(List)}
+ * <pre>
+ * public void onBindViewHolder(ItemViewHolder holder, int position) {
+ *     holder.textView.setTextLayout(layoutCache.get(data.get(position)));
+ * }
+ * </pre>
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class TextLayoutCache {
+    private final TextPaint paint;
+    private final LruCache<CharSequence, Layout> cache;
+    private volatile int width;
+    private Layout.Alignment alignment = Layout.Alignment.ALIGN_NORMAL;
+    private float spacingMult = 1f;
+    private float spacingAdd = 0f;
+    private Executor executor;
+
+    /**
+     * @param paint   文字的画笔(字体,字号,颜色),和条目中原来的TextView一致,可以直接使用textView.getPaint()
+     * @param maxSize 最多缓存的数量
+     */
+    public TextLayoutCache(TextPaint paint, int maxSize) {
+        //后台线程使用单独的画笔,不和界面上的TextView共用
+        this.paint = new TextPaint(paint);
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * 设置文字区域的宽度,宽度变化时清空缓存
+     *
+     * @param width
+     * @return
+     */
+    public TextLayoutCache setWidth(int width) {
+        if (this.width != width) {
+            this.width = width;
+            cache.evictAll();
+        }
+        return this;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 设置对齐方式和行间距,和TextView的gravity,lineSpacingMultiplier,lineSpacingExtra对应
+     *
+     * @param alignment
+     * @param spacingMult
+     * @param spacingAdd
+     * @return
+     */
+    public TextLayoutCache setLayoutParams(Layout.Alignment alignment, float spacingMult, float spacingAdd) {
+        this.alignment = alignment;
+        this.spacingMult = spacingMult;
+        this.spacingAdd = spacingAdd;
+        cache.evictAll();
+        return this;
+    }
+
+    /**
+     * 设置后台计算的线程池,默认和差异计算共用一个后台线程
+     *
+     * @param executor
+     * @return
+     */
+    public TextLayoutCache setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 获取文字的Layout,没有缓存时在当前线程计算
+     *
+     * @param text
+     * @return
+     */
+    public Layout get(CharSequence text) {
+        if (text == null) {
+            text = "";
+        }
+        int width = this.width;
+        Layout layout = cache.get(text);
+        if (layout == null || layout.getWidth() != width) {
+            layout = build(text, width);
+            cache.put(text, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * 是否已经计算过
+     *
+     * @param text
+     * @return
+     */
+    public boolean contains(CharSequence text) {
+        Layout layout = text == null ? null : cache.get(text);
+        return layout != null && layout.getWidth() == width;
+    }
+
+    /**
+     * 在当前线程计算并缓存,一般在后台线程调用,已经缓存的跳过
+     *
+     * @param texts
+     */
+    public void precompute(List<? extends CharSequence> texts) {
+        int width = this.width;
+        if (width <= 0) {
+            return;
+        }
+        for (int i = 0, size = texts.size(); i < size; i++) {
+            CharSequence text = texts.get(i);
+            if (text == null || contains(text)) {
+                continue;
+            }
+            Layout layout = build(text, width);
+            if (width != this.width) {
+                //计算过程中宽度变化,结果已经没有用了
+                return;
+            }
+            cache.put(text, layout);
+        }
+    }
+
+    /**
+     * 在后台线程计算并缓存,文字必须是不会再被修改的(比如String)
+     *
+     * @param texts
+     */
+    public void precomputeAsync(List<? extends CharSequence> texts) {
+        if (width <= 0 || texts.isEmpty()) {
+            return;
+        }
+        final List<CharSequence> copy = new ArrayList<CharSequence>(texts);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                precompute(copy);
+            }
+        });
+    }
+
+    /**
+     * 缓存的数量
+     *
+     * @return
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * 画笔不是线程安全的,计算时加锁
+     */
+    private Layout build(CharSequence text, int width) {
+        synchronized (paint) {
+            return new StaticLayout(text, paint, Math.max(width, 0), alignment, spacingMult, spacingAdd, true);
+        }
+    }
+
+    private Executor getExecutor() {
+        return executor != null ? executor : RefreshExecutors.background();
+    }
+
+    /**
+     * 按数据的位置提供需要预先计算的文字
+     */
+    public interface TextSource {
+        /**
+         * @param position 数据的位置
+         * @return 为null时跳过
+         */
+        CharSequence getText(int position);
+    }
+}
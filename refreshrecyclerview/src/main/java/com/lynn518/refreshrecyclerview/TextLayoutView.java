@@ -0,0 +1,71 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 直接绘制{@link TextLayoutCache}计算好的Layout,绑定时不再测量和排版文字
+ * 宽度为wrap_content时使用Layout的宽度,高度总是Layout的高度加上padding
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class TextLayoutView extends View {
+    private Layout layout;
+
+    public TextLayoutView(Context context) {
+        super(context);
+    }
+
+    public TextLayoutView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public TextLayoutView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 设置要绘制的Layout,高度不变时只重绘,不重新布局
+     *
+     * @param layout
+     */
+    public void setTextLayout(Layout layout) {
+        if (this.layout == layout) {
+            return;
+        }
+        Layout old = this.layout;
+        this.layout = layout;
+        if (old == null || layout == null || old.getHeight() != layout.getHeight() || old.getWidth() != layout.getWidth()) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public Layout getTextLayout() {
+        return layout;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int width = (layout == null ? 0 : layout.getWidth()) + horizontalPadding;
+        int height = (layout == null ? 0 : layout.getHeight()) + verticalPadding;
+        setMeasuredDimension(resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (layout == null) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+}
@@ -0,0 +1,138 @@
+package com.lynn518.refreshrecyclerview;
+
+import java.util.ArrayList;
+
+/**
+ * 按顺序记录插入/删除/更新操作,和上一次操作相邻或重叠时合并成一次范围通知
+ * 每次操作的位置都是在前面的操作执行之后的位置(和逐条调用notifyItemXXX一致)
+ * 合并规则:
+ * 1.插入的位置在上一次插入的范围内(包括末尾),合并成一次插入
+ * 2.从同一个位置连续删除,或者向前连续删除,合并成一次删除
+ * 3.删除的范围完全在上一次插入的范围内,直接从插入中减掉
+ * 4.更新的范围完全在上一次插入的范围内,忽略(新插入的条目本来就会绑定)
+ * 5.payload相同的更新范围相邻或重叠时,合并成一次更新
+ * 不依赖Android,可以直接在JVM上测试
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+class UpdateRangeMerger {
+    static final int INSERT = 0;
+    static final int REMOVE = 1;
+    static final int CHANGE = 2;
+    private final ArrayList<Range> ranges = new ArrayList<>();
+
+    void insert(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Range last = last();
+        if (last != null && last.type == INSERT && position >= last.position && position <= last.position + last.count) {
+            last.count += count;
+            return;
+        }
+        ranges.add(new Range(INSERT, position, count, null));
+    }
+
+    void remove(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Range last = last();
+        if (last != null && last.type == REMOVE) {
+            if (position == last.position) {
+                last.count += count;
+                return;
+            }
+            if (position + count == last.position) {
+                last.position = position;
+                last.count += count;
+                return;
+            }
+        }
+        if (last != null && last.type == INSERT && position >= last.position && position + count <= last.position + last.count) {
+            last.count -= count;
+            if (last.count == 0) {
+                ranges.remove(ranges.size() - 1);
+            }
+            return;
+        }
+        ranges.add(new Range(REMOVE, position, count, null));
+    }
+
+    void change(int position, int count, Object payload) {
+        if (count <= 0) {
+            return;
+        }
+        Range last = last();
+        if (last != null && last.type == INSERT && position >= last.position && position + count <= last.position + last.count) {
+            return;
+        }
+        if (last != null && last.type == CHANGE && samePayload(last.payload, payload)
+                && position <= last.position + last.count && position + count >= last.position) {
+            int end = Math.max(last.position + last.count, position + count);
+            last.position = Math.min(last.position, position);
+            last.count = end - last.position;
+            return;
+        }
+        ranges.add(new Range(CHANGE, position, count, payload));
+    }
+
+    boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * 合并后的操作数
+     */
+    int size() {
+        return ranges.size();
+    }
+
+    void clear() {
+        ranges.clear();
+    }
+
+    /**
+     * 按顺序分发合并后的操作
+     *
+     * @param callback
+     */
+    void dispatchTo(ListUpdateCallback callback) {
+        for (int i = 0, size = ranges.size(); i < size; i++) {
+            Range range = ranges.get(i);
+            switch (range.type) {
+                case INSERT:
+                    callback.onInserted(range.position, range.count);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(range.position, range.count);
+                    break;
+                case CHANGE:
+                    callback.onChanged(range.position, range.count, range.payload);
+                    break;
+            }
+        }
+    }
+
+    private Range last() {
+        return ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+    }
+
+    private static boolean samePayload(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static class Range {
+        final int type;
+        int position;
+        int count;
+        final Object payload;
+
+        Range(int type, int position, int count, Object payload) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.HashMap;
+
+/**
+ * 全局的条目类型分配表,避免不同适配器的条目类型冲突
+ * 1.{@link #obtainSharedType(Object, int)} 同一种适配器(key相同)的同一个条目类型总是得到同一个全局类型,
+ * 不同页面可以通过共享的RecycledViewPool复用ViewHolder
+ * 2.{@link #obtainUniqueType()} 每次返回一个新的类型,用于footer/emptyView/header这些只有一个实例的条目
+ * 分配的类型都在0x20000000以上,不会和一般适配器自己定义的类型(从0开始的小整数)冲突
+ *
+ * @author lynn518(QQ:17949941 欢迎交流)
+ */
+public class ViewTypeRegistry {
+    private static final int FIRST_SHARED_TYPE = 0x20000000;
+    private static final int FIRST_UNIQUE_TYPE = 0x40000000;
+    private static final ViewTypeRegistry DEFAULT = new ViewTypeRegistry();
+    private final HashMap<Object, SparseIntArray> sharedTypes = new HashMap<>();
+    private final SparseArray<Object> sharedTypeKeys = new SparseArray<>();
+    private final SparseIntArray sharedTypeLocalTypes = new SparseIntArray();
+    private int nextSharedType = FIRST_SHARED_TYPE;
+    private int nextUniqueType = FIRST_UNIQUE_TYPE;
+
+    /**
+     * 获取默认的分配表,所有页面共用
+     *
+     * @return
+     */
+    public static ViewTypeRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取适配器条目类型对应的全局类型
+     *
+     * @param key       区分适配器的key,一般使用适配器的Class
+     * @param localType 适配器自己的条目类型
+     * @return
+     */
+    public synchronized int obtainSharedType(Object key, int localType) {
+        SparseIntArray types = sharedTypes.get(key);
+        if (types == null) {
+            types = new SparseIntArray();
+            sharedTypes.put(key, types);
+        }
+        int index = types.indexOfKey(localType);
+        if (index >= 0) {
+            return types.valueAt(index);
+        }
+        int type = nextSharedType++;
+        types.put(localType, type);
+        sharedTypeKeys.put(type, key);
+        sharedTypeLocalTypes.put(type, localType);
+        return type;
+    }
+
+    /**
+     * 获取全局类型对应的适配器key,不是{@link #obtainSharedType(Object, int)}分配的类型时返回null
+     *
+     * @param type
+     * @return
+     */
+    public synchronized Object getKey(int type) {
+        return sharedTypeKeys.get(type);
+    }
+
+    /**
+     * 获取全局类型对应的适配器自己的条目类型,需要先通过{@link #getKey(int)}确认是分配过的类型
+     *
+     * @param type
+     * @return
+     */
+    public synchronized int getLocalType(int type) {
+        return sharedTypeLocalTypes.get(type);
+    }
+
+    /**
+     * 获取一个没有被使用过的类型
+     *
+     * @return
+     */
+    public synchronized int obtainUniqueType() {
+        return nextUniqueType++;
+    }
+}
@@ -0,0 +1,183 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分段的起始位置,条目类型的映射,通知的偏移和移除子适配器
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CompositeAdapterTest {
+    private ViewTypeRegistry registry;
+    private CompositeAdapter adapter;
+    private SimpleAdapter first;
+    private SimpleAdapter second;
+    private View header;
+    private View footer;
+    private RecordingObserver observer;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new ViewTypeRegistry();
+        header = new View(RuntimeEnvironment.application);
+        footer = new View(RuntimeEnvironment.application);
+        first = new SimpleAdapter(3);
+        second = new SecondAdapter(2);
+        adapter = new CompositeAdapter(registry)
+                .addHeaderView(header)
+                .addAdapter(first)
+                .addAdapter(second)
+                .addFooterView(footer);
+        observer = new RecordingObserver();
+        adapter.registerAdapterDataObserver(observer);
+    }
+
+    @Test
+    public void sections_startAfterPreviousSections() throws Exception {
+        assertEquals(7, adapter.getItemCount());
+        assertEquals(1, adapter.getAdapterStart(first));
+        assertEquals(4, adapter.getAdapterStart(second));
+        assertTrue(adapter.isFixedViewPosition(0));
+        assertFalse(adapter.isFixedViewPosition(3));
+        assertTrue(adapter.isFixedViewPosition(6));
+    }
+
+    @Test
+    public void childNotifications_forwardedWithOffset() throws Exception {
+        second.count++;
+        second.notifyItemInserted(0);
+        first.notifyItemChanged(2);
+        assertEquals("[+4x1, ~3x1]", observer.calls.toString());
+        assertEquals(8, adapter.getItemCount());
+    }
+
+    @Test
+    public void viewTypes_namespacedPerAdapter() throws Exception {
+        int firstType = adapter.getItemViewType(1);
+        int secondType = adapter.getItemViewType(4);
+        assertNotEquals(firstType, secondType);
+        assertEquals(registry.obtainSharedType(SimpleAdapter.class, 0), firstType);
+        assertNotEquals(adapter.getItemViewType(0), adapter.getItemViewType(6));
+        ViewGroup parent = new FrameLayout(RuntimeEnvironment.application);
+        assertSame(header, adapter.onCreateViewHolder(parent, adapter.getItemViewType(0)).itemView);
+        adapter.onCreateViewHolder(parent, firstType);
+        assertEquals(1, first.createCount);
+        assertEquals(0, second.createCount);
+    }
+
+    @Test
+    public void createBeforeAnyBind_resolvedThroughRegistry() throws Exception {
+        //空闲时预先创建,还没有查询过任何位置的类型
+        int secondType = registry.obtainSharedType(SecondAdapter.class, 0);
+        RecyclerView.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(RuntimeEnvironment.application), secondType);
+        assertNotNull(holder);
+        assertEquals(1, second.createCount);
+        assertEquals(0, first.createCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createUnknownType_throws() throws Exception {
+        adapter.onCreateViewHolder(new FrameLayout(RuntimeEnvironment.application), registry.obtainUniqueType());
+    }
+
+    @Test
+    public void removeAdapter_removesRangeAndShiftsLaterSections() throws Exception {
+        adapter.removeAdapter(first);
+        assertEquals("[-1x3]", observer.calls.toString());
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(-1, adapter.getAdapterStart(first));
+        assertEquals(1, adapter.getAdapterStart(second));
+        //移除之后子适配器的通知不再转发
+        first.notifyItemChanged(0);
+        assertEquals(1, observer.calls.size());
+        adapter.removeView(header);
+        assertEquals(0, adapter.getAdapterStart(second));
+    }
+
+    @Test
+    public void stableIds_forwardedFromChildren() throws Exception {
+        SimpleAdapter withIds = new SimpleAdapter(3);
+        withIds.setHasStableIds(true);
+        CompositeAdapter stable = new CompositeAdapter(registry);
+        stable.setHasStableIds(true);
+        stable.addHeaderView(header).addAdapter(withIds).addAdapter(new SecondAdapter(2));
+        assertEquals(101, stable.getItemId(2));
+        assertEquals(RecyclerView.NO_ID, stable.getItemId(4));
+        assertNotEquals(RecyclerView.NO_ID, stable.getItemId(0));
+    }
+
+    private static class SimpleAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int count;
+        int createCount;
+
+        SimpleAdapter(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            createCount++;
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return 100 + position;
+        }
+
+        @Override
+        public int getItemCount() {
+            return count;
+        }
+    }
+
+    private static class SecondAdapter extends SimpleAdapter {
+        SecondAdapter(int count) {
+            super(count);
+        }
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            calls.add("~" + positionStart + "x" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            calls.add("~" + positionStart + "x" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            calls.add("+" + positionStart + "x" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            calls.add("-" + positionStart + "x" + itemCount);
+        }
+    }
+}
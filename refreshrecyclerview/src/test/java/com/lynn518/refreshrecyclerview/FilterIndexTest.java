@@ -0,0 +1,166 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * 把通知回放到模拟的列表上,结果和过滤后的数据一致
+ */
+public class FilterIndexTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private static final FilterIndex.Tokenizer<String> TOKENIZER = new FilterIndex.Tokenizer<String>() {
+        @Override
+        public CharSequence getText(String item) {
+            return item;
+        }
+    };
+
+    @Test
+    public void tokenize_lowercaseWordsAndSingleCjkChars() throws Exception {
+        assertArrayEquals(new String[]{"hello", "world2"}, FilterIndex.tokenize("Hello, World2!"));
+        assertArrayEquals(new String[]{"中", "文", "ab"}, FilterIndex.tokenize("中文ab"));
+    }
+
+    @Test
+    public void filter_prefixOfEveryToken() throws Exception {
+        List<String> source = new ArrayList<>(Arrays.asList("red apple", "green apple", "red pepper", "banana"));
+        Replay replay = new Replay();
+        FilterIndex<String> index = create(source, replay);
+        index.filter("app");
+        assertModel(index, replay, "red apple", "green apple");
+        index.filter("app re");
+        assertModel(index, replay, "red apple");
+        index.filter("");
+        assertModel(index, replay, "red apple", "green apple", "red pepper", "banana");
+    }
+
+    @Test
+    public void appended_onlyMatchesInserted() throws Exception {
+        List<String> source = new ArrayList<>(Arrays.asList("red apple", "banana"));
+        Replay replay = new Replay();
+        FilterIndex<String> index = create(source, replay);
+        index.filter("red");
+        source.addAll(Arrays.asList("blue", "red car", "red pen"));
+        replay.calls.clear();
+        index.notifySourceAppended(3);
+        assertEquals("[+1x2]", replay.calls.toString());
+        assertModel(index, replay, "red apple", "red car", "red pen");
+        assertEquals(4, index.getSourcePosition(2));
+    }
+
+    @Test
+    public void sourceChanged_diffAgainstCurrentResult() throws Exception {
+        List<String> source = new ArrayList<>(Arrays.asList("red apple", "red car", "blue car"));
+        Replay replay = new Replay();
+        FilterIndex<String> index = create(source, replay);
+        index.filter("car");
+        source.clear();
+        source.addAll(Arrays.asList("new car", "red car", "green tree"));
+        index.notifySourceChanged();
+        assertModel(index, replay, "new car", "red car");
+    }
+
+    @Test
+    public void filter_staleQueryCancelled() throws Exception {
+        List<String> source = new ArrayList<>(Arrays.asList("red apple", "green apple"));
+        Replay replay = new Replay();
+        final List<Runnable> pending = new ArrayList<>();
+        FilterIndex<String> index = new FilterIndex<>(source, TOKENIZER)
+                .setExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        pending.add(command);
+                    }
+                })
+                .setCallbackExecutor(DIRECT);
+        index.setCallback(replay);
+        replay.model.addAll(source);
+        index.filter("red");
+        index.filter("green");
+        for (Runnable runnable : pending) {
+            runnable.run();
+        }
+        assertModel(index, replay, "green apple");
+    }
+
+    @Test
+    public void diffSorted_mergedRanges() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        FilterIndex.diffSorted(new int[]{0, 1, 2, 5}, new int[]{2, 3, 4, 5}, merger);
+        Replay replay = new Replay();
+        replay.model.addAll(Arrays.asList("0", "1", "2", "5"));
+        merger.dispatchTo(replay);
+        assertEquals(Arrays.asList("2", null, null, "5"), replay.model);
+        assertEquals("[-0x2, +1x2]", replay.calls.toString());
+    }
+
+    private static FilterIndex<String> create(List<String> source, Replay replay) {
+        FilterIndex<String> index = new FilterIndex<>(source, TOKENIZER)
+                .setExecutor(DIRECT)
+                .setCallbackExecutor(DIRECT);
+        index.setCallback(replay);
+        replay.model.addAll(source);
+        return index;
+    }
+
+    private static void assertModel(FilterIndex<String> index, Replay replay, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (int i = 0; i < index.getCount(); i++) {
+            actual.add(index.getItem(i));
+        }
+        assertEquals(Arrays.asList(expected), actual);
+        assertEquals(actual.size(), replay.model.size());
+        for (int i = 0; i < actual.size(); i++) {
+            if (replay.model.get(i) == null) {
+                replay.model.set(i, actual.get(i));
+            }
+            assertEquals(actual.get(i), replay.model.get(i));
+        }
+    }
+
+    /**
+     * 插入的位置用占位数据填充,再用过滤后的数据校正内容
+     */
+    private static class Replay implements ListUpdateCallback {
+        final List<String> model = new ArrayList<>();
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            calls.add("+" + position + "x" + count);
+            for (int i = 0; i < count; i++) {
+                model.add(position + i, null);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            calls.add("-" + position + "x" + count);
+            for (int i = 0; i < count; i++) {
+                model.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            calls.add(">" + fromPosition + ">" + toPosition);
+            model.add(toPosition, model.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            calls.add("~" + position + "x" + count);
+        }
+    }
+}
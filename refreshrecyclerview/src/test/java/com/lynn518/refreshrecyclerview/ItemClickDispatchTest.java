@@ -0,0 +1,220 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+/**
+ * 绑定模式的点击分发,以及两种点击检测方式在滚动过程中每帧的内存分配
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ItemClickDispatchTest {
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int FRAMES = 1000;
+    private static final int SCROLL_STEP = 3;
+    private static final String[] TEXTS = {"a", "b", "c", "d"};
+    private RefreshRecyclerView refreshRecyclerView;
+    private RecyclerView recyclerView;
+    private int clickedPosition = -1;
+
+    @Before
+    public void setUp() throws Exception {
+        setUp(new TextAdapter());
+    }
+
+    private void setUp(RecyclerView.Adapter adapter) {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        refreshRecyclerView = new RefreshRecyclerView(activity);
+        refreshRecyclerView.setAdapter(new RefreshRecyclerView.RefreshAdapter(adapter, null, null));
+        activity.setContentView(refreshRecyclerView);
+        refreshRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        refreshRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+        recyclerView = refreshRecyclerView.getRecyclerView();
+    }
+
+    @Test
+    public void bindMode_dispatchesClick() throws Exception {
+        refreshRecyclerView.setItemClickMode(RefreshRecyclerView.CLICK_MODE_BIND);
+        refreshRecyclerView.setOnItemClickListener(new RefreshRecyclerView.OnItemClickListener() {
+            @Override
+            public void onItemClick(RecyclerView.ViewHolder holder, int position) {
+                clickedPosition = position;
+            }
+        });
+        layout();
+        recyclerView.findViewHolderForAdapterPosition(3).itemView.performClick();
+        assertEquals(3, clickedPosition);
+    }
+
+    @Test
+    public void bindMode_keepsItemOwnListener() throws Exception {
+        final int[] ownClicks = new int[1];
+        setUp(new TextAdapter() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                RecyclerView.ViewHolder holder = super.onCreateViewHolder(parent, viewType);
+                holder.itemView.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        ownClicks[0]++;
+                    }
+                });
+                return holder;
+            }
+        });
+        refreshRecyclerView.setItemClickMode(RefreshRecyclerView.CLICK_MODE_BIND);
+        refreshRecyclerView.setOnItemClickListener(new RefreshRecyclerView.OnItemClickListener() {
+            @Override
+            public void onItemClick(RecyclerView.ViewHolder holder, int position) {
+                clickedPosition = position;
+            }
+        });
+        layout();
+        recyclerView.findViewHolderForAdapterPosition(2).itemView.performClick();
+        assertEquals(1, ownClicks[0]);
+        assertEquals(-1, clickedPosition);
+    }
+
+    @Test
+    public void switchBackToGestureMode_removesDispatchers() throws Exception {
+        //没有change动画,显示中的都是同一批ViewHolder
+        recyclerView.setItemAnimator(null);
+        refreshRecyclerView.setItemClickMode(RefreshRecyclerView.CLICK_MODE_BIND);
+        refreshRecyclerView.setOnItemClickListener(new RefreshRecyclerView.OnItemClickListener() {
+            @Override
+            public void onItemClick(RecyclerView.ViewHolder holder, int position) {
+                clickedPosition = position;
+            }
+        });
+        layout();
+        View itemView = recyclerView.findViewHolderForAdapterPosition(1).itemView;
+        assertTrue(itemView.hasOnClickListeners());
+        refreshRecyclerView.setItemClickMode(RefreshRecyclerView.CLICK_MODE_GESTURE);
+        assertFalse(itemView.hasOnClickListeners());
+        assertFalse(itemView.isClickable());
+        layout();
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            assertFalse(recyclerView.getChildAt(i).hasOnClickListeners());
+        }
+    }
+
+    /**
+     * Robolectric的影子类和JIT的逃逸分析会让每次测量相差1~2KB,不能和没有监听时逐字节比较
+     * 手势检测每帧多分配的内存,绑定模式至少要省掉一半
+     */
+    @Test
+    public void bindMode_scrollFrameAllocatesFarLessThanGestureMode() throws Exception {
+        Assume.assumeTrue("thread allocation counter not supported", allocatedBytes() >= 0);
+        long baseline = minAllocatedBytesPerFrame();
+        refreshRecyclerView.setOnItemClickListener(new RefreshRecyclerView.OnItemClickListener() {
+            @Override
+            public void onItemClick(RecyclerView.ViewHolder holder, int position) {
+            }
+        });
+        layout();
+        long gestureMode = minAllocatedBytesPerFrame();
+        refreshRecyclerView.setItemClickMode(RefreshRecyclerView.CLICK_MODE_BIND);
+        layout();
+        long bindMode = minAllocatedBytesPerFrame();
+        String message = "bytes/frame baseline " + baseline + ", gesture mode " + gestureMode + ", bind mode " + bindMode;
+        assertTrue(message, gestureMode > baseline);
+        assertTrue(message, bindMode - baseline < (gestureMode - baseline) / 2);
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private long minAllocatedBytesPerFrame() {
+        return Math.min(allocatedBytesPerFrame(), allocatedBytesPerFrame());
+    }
+
+    /**
+     * 回放一段拖动:每帧分发一个ACTION_MOVE,统计平均每帧分配的字节数
+     */
+    private long allocatedBytesPerFrame() {
+        long downTime = SystemClock.uptimeMillis();
+        float y = HEIGHT / 2;
+        MotionEvent event = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, WIDTH / 2, y, 0);
+        recyclerView.dispatchTouchEvent(event);
+        event.setAction(MotionEvent.ACTION_MOVE);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            y = y > 0 ? y - SCROLL_STEP : HEIGHT / 2;
+            event.setLocation(WIDTH / 2, y);
+            recyclerView.dispatchTouchEvent(event);
+        }
+        long start = allocatedBytes();
+        for (int i = 0; i < FRAMES; i++) {
+            y = y > 0 ? y - SCROLL_STEP : HEIGHT / 2;
+            event.setLocation(WIDTH / 2, y);
+            recyclerView.dispatchTouchEvent(event);
+        }
+        long perFrame = (allocatedBytes() - start) / FRAMES;
+        event.setAction(MotionEvent.ACTION_UP);
+        recyclerView.dispatchTouchEvent(event);
+        event.recycle();
+        recyclerView.scrollToPosition(0);
+        layout();
+        return perFrame;
+    }
+
+    /**
+     * 当前线程分配的字节数,虚拟机不支持时返回-1
+     * 通过反射调用,不依赖具体虚拟机的扩展接口
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        for (Class<?> type : bean.getClass().getInterfaces()) {
+            try {
+                Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+                return (Long) method.invoke(bean, Thread.currentThread().getId());
+            } catch (Exception ignored) {
+            }
+        }
+        return -1;
+    }
+
+    private static class TextAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 100));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView).setText(TEXTS[position % TEXTS.length]);
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1000;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回放一段匀速向下滑动的轨迹,比较两种触发模式在列表末尾卡住(等待加载)的帧数
+ */
+public class LoadMoreTriggerTest {
+    private static final int ITEM_HEIGHT = 100;
+    private static final int VIEWPORT_HEIGHT = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int LOAD_LATENCY_FRAMES = 40;
+    private static final int SCROLL_SPEED = 25;
+    private static final int FRAMES = 3000;
+
+    @Test
+    public void prefetch_stallsLessThanIdle() throws Exception {
+        Replay idle = replay(new LoadMoreTrigger());
+        Replay prefetch = replay(new LoadMoreTrigger().setMode(LoadMoreTrigger.MODE_PREFETCH));
+        assertTrue("idle should stall at the end of every page", idle.stallFrames > 0);
+        assertTrue("prefetch " + prefetch.stallFrames + " vs idle " + idle.stallFrames, prefetch.stallFrames < idle.stallFrames);
+        assertTrue(prefetch.loads >= idle.loads);
+    }
+
+    @Test
+    public void prefetch_lookaheadCoveringLatencyNeverStalls() throws Exception {
+        Replay prefetch = replay(new LoadMoreTrigger().setMode(LoadMoreTrigger.MODE_PREFETCH).setLookaheadFrames(LOAD_LATENCY_FRAMES));
+        assertEquals(0, prefetch.stallFrames);
+    }
+
+    @Test
+    public void prefetch_firesOncePerPage() throws Exception {
+        LoadMoreTrigger trigger = new LoadMoreTrigger().setMode(LoadMoreTrigger.MODE_PREFETCH).setPrefetchItemCount(5);
+        assertFalse(trigger.onScrolled(10, 21, 10, VIEWPORT_HEIGHT, 0));
+        assertTrue(trigger.onScrolled(16, 21, 10, VIEWPORT_HEIGHT, 1));
+        assertFalse(trigger.onScrolled(17, 21, 10, VIEWPORT_HEIGHT, 1));
+        assertFalse(trigger.onScrolled(20, 21, 10, VIEWPORT_HEIGHT, 1));
+        assertTrue(trigger.onScrolled(36, 41, 10, VIEWPORT_HEIGHT, 1));
+        trigger.reset();
+        assertTrue(trigger.onScrolled(36, 41, 10, VIEWPORT_HEIGHT, 1));
+    }
+
+    @Test
+    public void idleMode_ignoresScrolled() throws Exception {
+        LoadMoreTrigger trigger = new LoadMoreTrigger();
+        assertFalse(trigger.onScrolled(20, 21, 10, VIEWPORT_HEIGHT, 100));
+        assertFalse(trigger.onScrollIdle(19, 21, 10));
+        assertTrue(trigger.onScrollIdle(20, 21, 10));
+    }
+
+    @Test
+    public void screenCount_overridesItemCount() throws Exception {
+        LoadMoreTrigger trigger = new LoadMoreTrigger().setLookaheadFrames(0).setPrefetchScreenCount(2f);
+        assertEquals(20, trigger.getPrefetchDistance(10, VIEWPORT_HEIGHT, 50));
+        trigger.setPrefetchItemCount(3);
+        assertEquals(3, trigger.getPrefetchDistance(10, VIEWPORT_HEIGHT, 50));
+    }
+
+    /**
+     * 模拟RefreshRecyclerView中onScrolled/onScrollStateChanged的调用过程,footer占一个条目
+     */
+    private static Replay replay(LoadMoreTrigger trigger) {
+        Replay replay = new Replay();
+        int itemCount = PAGE_SIZE + 1;
+        int scrollY = 0;
+        int lastDy = 0;
+        int loadingFrames = -1;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            if (loadingFrames > 0 && --loadingFrames == 0) {
+                itemCount += PAGE_SIZE;
+                loadingFrames = -1;
+            }
+            int maxScrollY = itemCount * ITEM_HEIGHT - VIEWPORT_HEIGHT;
+            int dy = Math.min(SCROLL_SPEED, maxScrollY - scrollY);
+            scrollY += dy;
+            int lastVisible = (scrollY + VIEWPORT_HEIGHT - 1) / ITEM_HEIGHT;
+            int visibleCount = lastVisible - scrollY / ITEM_HEIGHT + 1;
+            boolean loading = loadingFrames > 0;
+            if (dy > 0) {
+                if (!loading && trigger.onScrolled(lastVisible, itemCount, visibleCount, VIEWPORT_HEIGHT, dy)) {
+                    loadingFrames = LOAD_LATENCY_FRAMES;
+                    replay.loads++;
+                }
+                lastDy = dy;
+            } else {
+                replay.stallFrames++;
+                if (!loading && trigger.onScrollIdle(lastVisible, itemCount, lastDy)) {
+                    loadingFrames = LOAD_LATENCY_FRAMES;
+                    replay.loads++;
+                }
+                lastDy = 0;
+            }
+        }
+        return replay;
+    }
+
+    private static class Replay {
+        int stallFrames;
+        int loads;
+    }
+}
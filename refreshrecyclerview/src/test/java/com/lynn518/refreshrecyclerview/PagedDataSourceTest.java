@@ -0,0 +1,145 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 释放超出预算的页,重新加载,以及加载过程中插入或清空数据
+ */
+public class PagedDataSourceTest {
+
+    @Test
+    public void trim_withoutVisibleRange_keepsNewestPage() throws Exception {
+        RecordingDataSource dataSource = new RecordingDataSource();
+        dataSource.setMaxResidentItemCount(10);
+        dataSource.appendPage(page(0, 10));
+        dataSource.appendPage(page(10, 10));
+        dataSource.appendPage(page(20, 10));
+        assertEquals(10, dataSource.getResidentItemCount());
+        assertFalse(dataSource.isLoaded(0));
+        assertFalse(dataSource.isLoaded(10));
+        assertTrue(dataSource.isLoaded(29));
+    }
+
+    @Test
+    public void trim_releasesPageFarthestFromVisibleRange() throws Exception {
+        RecordingDataSource dataSource = new RecordingDataSource();
+        dataSource.appendPage(page(0, 10));
+        dataSource.appendPage(page(10, 10));
+        dataSource.appendPage(page(20, 10));
+        dataSource.onVisibleRangeChanged(2, 8);
+        dataSource.setMaxResidentItemCount(20);
+        assertTrue(dataSource.isLoaded(0));
+        assertTrue(dataSource.isLoaded(10));
+        assertFalse(dataSource.isLoaded(20));
+        dataSource.setMaxResidentItemCount(0);
+        //可见的页不会被释放
+        assertTrue(dataSource.isLoaded(0));
+        assertFalse(dataSource.isLoaded(10));
+        assertEquals(10, dataSource.getResidentItemCount());
+    }
+
+    @Test
+    public void getItem_releasedPage_reloadsOnce() throws Exception {
+        RecordingDataSource dataSource = releasedFirstPage();
+        assertNull(dataSource.getItem(3));
+        assertNull(dataSource.getItem(4));
+        assertEquals(1, dataSource.requests.size());
+        assertEquals(0, dataSource.requests.get(0).start);
+        dataSource.onVisibleRangeChanged(0, 9);
+        dataSource.requests.get(0).callback.onPageLoaded(page(0, 10));
+        assertEquals("item 3", dataSource.getItem(3));
+        assertEquals("[0x10]", dataSource.reloaded.toString());
+    }
+
+    @Test
+    public void getItem_failedLoad_retried() throws Exception {
+        RecordingDataSource dataSource = releasedFirstPage();
+        dataSource.getItem(0);
+        dataSource.requests.get(0).callback.onPageLoaded(null);
+        assertNull(dataSource.getItem(0));
+        assertEquals(2, dataSource.requests.size());
+    }
+
+    @Test
+    public void prependDuringLoad_pageFilledAtShiftedPosition() throws Exception {
+        RecordingDataSource dataSource = releasedFirstPage();
+        dataSource.getItem(0);
+        dataSource.setMaxResidentItemCount(Integer.MAX_VALUE);
+        dataSource.prependPage(page(-5, 5));
+        dataSource.requests.get(0).callback.onPageLoaded(page(0, 10));
+        assertEquals("item -5", dataSource.getItem(0));
+        assertEquals("item 0", dataSource.getItem(5));
+        assertEquals("[5x10]", dataSource.reloaded.toString());
+    }
+
+    @Test
+    public void clearDuringLoad_staleResultDropped() throws Exception {
+        RecordingDataSource dataSource = releasedFirstPage();
+        dataSource.getItem(0);
+        dataSource.clear();
+        dataSource.appendPage(page(100, 10));
+        dataSource.appendPage(page(110, 10));
+        dataSource.requests.get(0).callback.onPageLoaded(page(0, 10));
+        assertTrue(dataSource.reloaded.isEmpty());
+        assertEquals(10, dataSource.getResidentItemCount());
+        //新的数据被释放后仍然可以重新加载
+        assertNull(dataSource.getItem(0));
+        assertEquals(2, dataSource.requests.size());
+        dataSource.onVisibleRangeChanged(0, 9);
+        dataSource.requests.get(1).callback.onPageLoaded(page(100, 10));
+        assertEquals("item 100", dataSource.getItem(0));
+    }
+
+    /**
+     * 两页数据,可见区域在第二页,第一页已被释放
+     */
+    private static RecordingDataSource releasedFirstPage() {
+        RecordingDataSource dataSource = new RecordingDataSource();
+        dataSource.appendPage(page(0, 10));
+        dataSource.appendPage(page(10, 10));
+        dataSource.onVisibleRangeChanged(10, 19);
+        dataSource.setMaxResidentItemCount(10);
+        assertFalse(dataSource.isLoaded(0));
+        return dataSource;
+    }
+
+    private static List<String> page(int start, int count) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add("item " + (start + i));
+        }
+        return items;
+    }
+
+    private static class Request {
+        int start;
+        PagedDataSource.LoadCallback<String> callback;
+    }
+
+    private static class RecordingDataSource extends PagedDataSource<String> implements PagedDataSource.OnPageReloadListener {
+        final List<Request> requests = new ArrayList<>();
+        final List<String> reloaded = new ArrayList<>();
+
+        RecordingDataSource() {
+            setOnPageReloadListener(this);
+        }
+
+        @Override
+        protected void loadPage(int pageIndex, int start, int count, LoadCallback<String> callback) {
+            Request request = new Request();
+            request.start = start;
+            request.callback = callback;
+            requests.add(request);
+        }
+
+        @Override
+        public void onPageReloaded(int start, int count) {
+            reloaded.add(start + "x" + count);
+        }
+    }
+}
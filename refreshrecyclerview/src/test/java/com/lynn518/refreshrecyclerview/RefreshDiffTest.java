@@ -0,0 +1,156 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 条目格式为"id+内容",id是第一个字符;把差异回放到旧数据上,结果和新数据一致
+ */
+public class RefreshDiffTest {
+    private static final Object PAYLOAD = "payload";
+
+    @Test
+    public void insert_mergedRange() throws Exception {
+        Replay replay = replay(list("a", "b", "c"), list("a", "x", "y", "b", "c"));
+        assertEquals("[+1x2]", replay.calls.toString());
+    }
+
+    @Test
+    public void remove_mergedRange() throws Exception {
+        Replay replay = replay(list("a", "b", "c", "d"), list("a", "d"));
+        assertEquals("[-1x2]", replay.calls.toString());
+    }
+
+    @Test
+    public void move_notRemoveAndInsert() throws Exception {
+        Replay replay = replay(list("a", "b", "c", "d"), list("d", "a", "b", "c"));
+        assertEquals(1, replay.calls.size());
+        assertTrue(replay.calls.get(0).startsWith(">"));
+    }
+
+    @Test
+    public void change_withPayload() throws Exception {
+        Replay replay = replay(list("a1", "b1", "c1"), list("a1", "b2", "c2"));
+        assertEquals("[~1x2:payload]", replay.calls.toString());
+    }
+
+    @Test
+    public void emptySide_singleRange() throws Exception {
+        assertEquals("[+0x3]", replay(list(), list("a", "b", "c")).calls.toString());
+        assertEquals("[-0x3]", replay(list("a", "b", "c"), list()).calls.toString());
+        assertFalse(RefreshDiff.calculate(new ItemCallback(list(), list())).hasUpdates());
+    }
+
+    @Test
+    public void dispatchUpdatesTo_randomPositionsTranslated() throws Exception {
+        Random random = new Random(518);
+        for (int round = 0; round < 500; round++) {
+            List<String> ids = new ArrayList<>();
+            for (char c = 'a'; c <= 'p'; c++) {
+                ids.add(String.valueOf(c));
+            }
+            Collections.shuffle(ids, random);
+            List<String> oldList = new ArrayList<>();
+            for (String id : ids.subList(0, random.nextInt(12))) {
+                oldList.add(id + random.nextInt(2));
+            }
+            Collections.shuffle(ids, random);
+            List<String> newList = new ArrayList<>();
+            for (String id : ids.subList(0, random.nextInt(12))) {
+                newList.add(id + random.nextInt(2));
+            }
+            replay(oldList, newList);
+        }
+    }
+
+    private static List<String> list(String... items) {
+        return new ArrayList<>(Arrays.asList(items));
+    }
+
+    /**
+     * 回放差异并校验:id顺序和新数据一致,内容不同的位置都收到了更新且只有这些位置
+     */
+    private static Replay replay(List<String> oldList, List<String> newList) {
+        Replay replay = new Replay();
+        replay.model.addAll(oldList);
+        RefreshDiff.calculate(new ItemCallback(oldList, newList)).dispatchUpdatesTo(replay);
+        String message = oldList + " -> " + newList + " " + replay.calls;
+        assertEquals(message, newList.size(), replay.model.size());
+        for (int i = 0; i < newList.size(); i++) {
+            String current = replay.model.get(i);
+            String expected = newList.get(i);
+            if (current == null) {
+                for (String old : oldList) {
+                    assertNotEquals(message, old.charAt(0), expected.charAt(0));
+                }
+                continue;
+            }
+            assertEquals(message, expected.charAt(0), current.charAt(0));
+            assertEquals(message, !expected.equals(current), replay.changed.contains(i));
+        }
+        return replay;
+    }
+
+    private static class ItemCallback extends RefreshDiff.ListCallback<String> {
+
+        ItemCallback(List<String> oldList, List<String> newList) {
+            super(oldList, newList);
+        }
+
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return oldItem.charAt(0) == newItem.charAt(0);
+        }
+
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            return PAYLOAD;
+        }
+    }
+
+    /**
+     * 插入的位置用null占位,记录收到更新的位置
+     */
+    private static class Replay implements ListUpdateCallback {
+        final List<String> model = new ArrayList<>();
+        final List<String> calls = new ArrayList<>();
+        final List<Integer> changed = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            calls.add("+" + position + "x" + count);
+            for (int i = 0; i < count; i++) {
+                model.add(position + i, null);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            calls.add("-" + position + "x" + count);
+            for (int i = 0; i < count; i++) {
+                model.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            calls.add(">" + fromPosition + ">" + toPosition);
+            model.add(toPosition, model.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            calls.add("~" + position + "x" + count + ":" + payload);
+            for (int i = 0; i < count; i++) {
+                changed.add(position + i);
+            }
+        }
+    }
+}
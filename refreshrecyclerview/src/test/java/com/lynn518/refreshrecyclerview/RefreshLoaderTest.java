@@ -0,0 +1,368 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 加载失败的重试间隔,取消和过期结果的丢弃,取消和失败的刷新不统计耗时,刷新后的条目状态,下拉刷新结束向上加载,主线程暂停后手动执行post的任务
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RefreshLoaderTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+    private final List<String> data = new ArrayList<>();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final Executor pendingExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+    };
+    private RefreshRecyclerView refreshRecyclerView;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        refreshRecyclerView = new RefreshRecyclerView(activity);
+        refreshRecyclerView.setAdapter(new RefreshRecyclerView.RefreshAdapter(new TextAdapter(), null, null));
+        activity.setContentView(refreshRecyclerView);
+        refreshRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        refreshRecyclerView.layout(0, 0, 480, 800);
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void getRetryDelay_doublesUpToMax() throws Exception {
+        TestLoader loader = new TestLoader();
+        loader.setRetryDelay(1000, 5000);
+        assertEquals(1000, loader.getRetryDelay(1));
+        assertEquals(2000, loader.getRetryDelay(2));
+        assertEquals(4000, loader.getRetryDelay(3));
+        assertEquals(5000, loader.getRetryDelay(4));
+        assertEquals(5000, loader.getRetryDelay(40));
+    }
+
+    @Test
+    public void runtimeException_retriedWithBackoffThenFailed() throws Exception {
+        TestLoader loader = new TestLoader();
+        loader.failure = new IllegalStateException("load");
+        loader.setMaxRetries(2).setRetryDelay(1000, 1500);
+        refreshRecyclerView.setRefreshLoader(loader, DIRECT);
+        refreshRecyclerView.pullRefresh();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, loader.loadCount);
+        ShadowLooper.idleMainLooper(999);
+        assertEquals(1, loader.loadCount);
+        ShadowLooper.idleMainLooper(1);
+        assertEquals(2, loader.loadCount);
+        ShadowLooper.idleMainLooper(1499);
+        assertEquals(2, loader.loadCount);
+        assertNull(loader.failed);
+        ShadowLooper.idleMainLooper(1);
+        assertEquals(3, loader.loadCount);
+        assertSame(loader.failure, loader.failed);
+        //刷新状态已经结束,可以再次下拉刷新
+        refreshRecyclerView.pullRefresh();
+        assertEquals(4, loader.loadCount);
+    }
+
+    @Test
+    public void error_routedToOnFailed() throws Exception {
+        final Error error = new AssertionError("load");
+        TestLoader loader = new TestLoader() {
+            @Override
+            public String load(int type, Request request) throws Exception {
+                loadCount++;
+                throw error;
+            }
+        };
+        refreshRecyclerView.setRefreshLoader(loader, DIRECT);
+        refreshRecyclerView.pullRefresh();
+        ShadowLooper.runUiThreadTasks();
+        assertNotNull(loader.failed);
+        assertSame(error, loader.failed.getCause());
+        refreshRecyclerView.pullRefresh();
+        assertEquals(2, loader.loadCount);
+    }
+
+    @Test
+    public void cancelLoading_interruptsLoadAndDropsResult() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        TestLoader loader = new TestLoader() {
+            @Override
+            public String load(int type, Request request) throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "late";
+            }
+        };
+        refreshRecyclerView.setRefreshLoader(loader, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        });
+        refreshRecyclerView.pullRefresh();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        refreshRecyclerView.cancelLoading();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, loader.applyCount);
+        assertNull(loader.failed);
+    }
+
+    @Test
+    public void cancelLoading_refreshLatencyNotReported() throws Exception {
+        LatencyListener latencies = new LatencyListener();
+        refreshRecyclerView.setOnMetricsListener(latencies);
+        TestLoader loader = new TestLoader();
+        refreshRecyclerView.setRefreshLoader(loader, pendingExecutor);
+        refreshRecyclerView.pullRefresh();
+        refreshRecyclerView.cancelLoading();
+        assertEquals(0, latencies.refreshCount);
+        refreshRecyclerView.pullRefresh();
+        pending.get(1).run();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, latencies.refreshCount);
+    }
+
+    @Test
+    public void failedRefresh_latencyNotReported() throws Exception {
+        LatencyListener latencies = new LatencyListener();
+        refreshRecyclerView.setOnMetricsListener(latencies);
+        TestLoader loader = new TestLoader();
+        loader.failure = new IllegalStateException("load");
+        refreshRecyclerView.setRefreshLoader(loader, DIRECT);
+        refreshRecyclerView.pullRefresh();
+        ShadowLooper.runUiThreadTasks();
+        assertNotNull(loader.failed);
+        assertEquals(0, latencies.refreshCount);
+    }
+
+    @Test
+    public void staleResult_dropped() throws Exception {
+        TestLoader loader = new TestLoader();
+        refreshRecyclerView.setRefreshLoader(loader, pendingExecutor);
+        refreshRecyclerView.pullRefresh();
+        //第一次的结果已经post到主线程,还没有执行时被取消,然后开始新的刷新
+        pending.remove(0).run();
+        refreshRecyclerView.cancelLoading();
+        refreshRecyclerView.pullRefresh();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, loader.applyCount);
+        pending.remove(0).run();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, loader.applyCount);
+        assertEquals(2, loader.loadCount);
+    }
+
+    @Test
+    public void nullExecutor_usesBackgroundThread() throws Exception {
+        TestLoader loader = new TestLoader();
+        refreshRecyclerView.setRefreshLoader(loader, null);
+        refreshRecyclerView.pullRefresh();
+        for (int i = 0; i < 500 && loader.applyCount == 0; i++) {
+            Thread.sleep(10);
+            ShadowLooper.runUiThreadTasks();
+        }
+        assertEquals(1, loader.applyCount);
+    }
+
+    @Test
+    public void refresh_positionItemStatesCleared() throws Exception {
+        data.add("old");
+        RefreshRecyclerView.RefreshAdapter adapter = (RefreshRecyclerView.RefreshAdapter) refreshRecyclerView.getRecyclerView().getAdapter();
+        adapter.getInternalAdapter().notifyItemInserted(0);
+        adapter.setItemState(0, "expanded");
+        TestLoader loader = new TestLoader();
+        refreshRecyclerView.setRefreshLoader(loader, DIRECT);
+        refreshRecyclerView.pullRefresh();
+        ShadowLooper.runUiThreadTasks();
+        //没有stable id时按位置保存,新数据插入到顶部后不能再对应到第一条
+        assertEquals("item1", data.get(0));
+        assertNull(adapter.getItemState(0));
+        assertNull(adapter.getItemState(1));
+    }
+
+    @Test
+    public void detachedView_resultStillApplied() throws Exception {
+        TestLoader loader = new TestLoader();
+        refreshRecyclerView.setRefreshLoader(loader, pendingExecutor);
+        refreshRecyclerView.pullRefresh();
+        ((ViewGroup) refreshRecyclerView.getParent()).removeView(refreshRecyclerView);
+        //在后台线程完成加载,view已经不在窗口中
+        Thread thread = new Thread(pending.remove(0));
+        thread.start();
+        thread.join();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, loader.applyCount);
+        //刷新状态已经结束,可以再次下拉刷新
+        refreshRecyclerView.pullRefresh();
+        assertEquals(1, pending.size());
+    }
+
+    @Test
+    public void pullRefresh_endsLoadPrevious() throws Exception {
+        LoadPreviousListener listener = setUpLoadPrevious();
+        scrollToTop();
+        assertEquals(1, listener.count);
+        assertTrue(refreshRecyclerView.isLoadingPrevious());
+        refreshRecyclerView.setRefreshLoader(new TestLoader(), pendingExecutor);
+        refreshRecyclerView.pullRefresh();
+        //刷新开始后向上加载的结果应该丢弃
+        assertFalse(refreshRecyclerView.isLoadingPrevious());
+        assertEquals(View.GONE, refreshRecyclerView.getAdapter().getHeaderView().getVisibility());
+    }
+
+    @Test
+    public void noPrevious_onLoadPreviousNotCalled() throws Exception {
+        LoadPreviousListener listener = setUpLoadPrevious();
+        refreshRecyclerView.setHasPrevious(false);
+        scrollToTop();
+        assertEquals(0, listener.count);
+        assertFalse(refreshRecyclerView.isLoadingPrevious());
+    }
+
+    /**
+     * 20条数据,使用带header的适配器
+     */
+    private LoadPreviousListener setUpLoadPrevious() {
+        for (int i = 0; i < 20; i++) {
+            data.add("item" + i);
+        }
+        refreshRecyclerView.setAdapter(new RefreshRecyclerView.RefreshAdapter(new TextAdapter(),
+                new TextView(refreshRecyclerView.getContext()), null, null));
+        refreshRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        refreshRecyclerView.layout(0, 0, 480, 800);
+        LoadPreviousListener listener = new LoadPreviousListener();
+        refreshRecyclerView.setOnLoadPreviousListener(listener);
+        return listener;
+    }
+
+    private void scrollToTop() {
+        RecyclerView recyclerView = refreshRecyclerView.getRecyclerView();
+        recyclerView.scrollBy(0, 500);
+        recyclerView.scrollBy(0, -1000);
+    }
+
+    private static class LoadPreviousListener implements RefreshRecyclerView.OnLoadPreviousListener {
+        int count;
+
+        @Override
+        public void onLoadPrevious() {
+            count++;
+        }
+    }
+
+    private static class LatencyListener implements RefreshRecyclerView.OnMetricsListener {
+        int refreshCount;
+
+        @Override
+        public void onFrame(long frameIntervalNanos, int droppedFrames) {
+        }
+
+        @Override
+        public void onCreateViewHolder(int viewType, long durationNanos) {
+        }
+
+        @Override
+        public void onBindViewHolder(int viewType, long durationNanos) {
+        }
+
+        @Override
+        public void onRefreshFinished(long latencyNanos) {
+            refreshCount++;
+        }
+
+        @Override
+        public void onLoadMoreFinished(long latencyNanos) {
+        }
+    }
+
+    private class TestLoader extends RefreshLoader<String> {
+        volatile int loadCount;
+        int applyCount;
+        Exception failure;
+        Exception failed;
+
+        @Override
+        public String load(int type, Request request) throws Exception {
+            loadCount++;
+            if (failure != null) {
+                throw failure;
+            }
+            return "item" + loadCount;
+        }
+
+        @Override
+        public int apply(int type, String result) {
+            applyCount++;
+            data.add(0, result);
+            return 1;
+        }
+
+        @Override
+        public void onFailed(int type, Exception e) {
+            failed = e;
+        }
+    }
+
+    private class TextAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 100));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView).setText(data.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return data.size();
+        }
+    }
+}
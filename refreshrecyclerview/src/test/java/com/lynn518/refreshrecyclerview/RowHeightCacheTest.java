@@ -0,0 +1,48 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 和HashMap比较随机写入后的结果
+ */
+public class RowHeightCacheTest {
+
+    @Test
+    public void putGet_matchesHashMap() throws Exception {
+        RowHeightCache cache = new RowHeightCache();
+        HashMap<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(18);
+        long total = 0;
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(2000) - 1000L * random.nextInt(3) * Integer.MAX_VALUE;
+            int height = random.nextInt(500);
+            cache.put(key, height);
+            Integer old = expected.put(key, height);
+            total += height - (old == null ? 0 : old);
+        }
+        assertEquals(expected.size(), cache.size());
+        for (Long key : expected.keySet()) {
+            assertEquals(expected.get(key).intValue(), cache.get(key, -1));
+        }
+        assertEquals(-1, cache.get(123456789L, -1));
+        assertEquals((int) (total / expected.size()), cache.getAverageHeight());
+    }
+
+    @Test
+    public void clear_removesAll() throws Exception {
+        RowHeightCache cache = new RowHeightCache();
+        cache.put(1, 0);
+        cache.put(2, 100);
+        assertEquals(0, cache.get(1, -1));
+        assertEquals(50, cache.getAverageHeight());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getAverageHeight());
+        assertEquals(-1, cache.get(2, -1));
+    }
+}
@@ -0,0 +1,238 @@
+package com.lynn518.refreshrecyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回放滑动,下拉刷新,加载更多等场景,统计创建/绑定ViewHolder,布局,通知的次数,超过基准值(workload-baselines.properties)时失败
+ * 列表不添加到窗口,关闭条目动画,只有手动调用{@link #layout()}时才会布局,每次运行的结果都相同
+ * 修改后次数减少时,把失败信息中的实际次数更新到基准值中
+ * 基准值的生成方法:删除workload-baselines.properties中的值,运行
+ * ./gradlew :refreshrecyclerview:testDebugUnitTest --tests com.lynn518.refreshrecyclerview.ScrollWorkloadTest
+ * 没有基准值的场景被跳过,并在标准输出中输出实际次数;基准值只能来自这个任务,其他Robolectric或RecyclerView版本的次数不同
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ScrollWorkloadTest {
+    private static final String BASELINES = "/workload-baselines.properties";
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ITEM_HEIGHT = 100;
+    private static final int FLING_FRAMES = 40;
+    private static final int FLING_START_VELOCITY = 200;
+    private static final int FLING_DECELERATION = 5;
+    private static final int PAGE_SIZE = 20;
+    private RefreshRecyclerView refreshRecyclerView;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private CountingLayoutManager layoutManager;
+    private int notifyCount;
+
+    @Test
+    public void fling() throws Exception {
+        setUp(1000, false);
+        //每帧滑动的距离逐渐减小,模拟一次惯性滑动
+        for (int i = 0; i < FLING_FRAMES; i++) {
+            recyclerView.scrollBy(0, FLING_START_VELOCITY - FLING_DECELERATION * i);
+        }
+        assertWithinBaseline("fling");
+    }
+
+    @Test
+    public void refresh() throws Exception {
+        setUp(1000, false);
+        adapter.insert(0, 10);
+        refreshRecyclerView.notifyRefreshOkAndDataChange(10);
+        layout();
+        assertWithinBaseline("refresh");
+    }
+
+    @Test
+    public void loadMore() throws Exception {
+        setUp(PAGE_SIZE, true);
+        recyclerView.scrollBy(0, PAGE_SIZE * ITEM_HEIGHT);
+        resetCounts();
+        adapter.insert(adapter.getItemCount(), PAGE_SIZE);
+        refreshRecyclerView.notifyLoadMoreOkAndDataChange(PAGE_SIZE);
+        layout();
+        assertWithinBaseline("loadMore");
+    }
+
+    @Test
+    public void changeOne() throws Exception {
+        setUp(1000, false);
+        adapter.notifyItemChanged(3);
+        layout();
+        assertWithinBaseline("changeOne");
+    }
+
+    private void setUp(int itemCount, boolean loadMore) {
+        Context context = RuntimeEnvironment.application;
+        refreshRecyclerView = new RefreshRecyclerView(context);
+        layoutManager = new CountingLayoutManager(context);
+        refreshRecyclerView.setLayoutManager(layoutManager);
+        adapter = new CountingAdapter(itemCount);
+        View footerView = null;
+        if (loadMore) {
+            footerView = new View(context);
+            footerView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+        }
+        RefreshRecyclerView.RefreshAdapter refreshAdapter = new RefreshRecyclerView.RefreshAdapter(adapter, footerView, null);
+        refreshAdapter.registerAdapterDataObserver(new CountingObserver());
+        refreshRecyclerView.setAdapter(refreshAdapter);
+        recyclerView = refreshRecyclerView.getRecyclerView();
+        recyclerView.setItemAnimator(null);
+        refreshRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        refreshRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+        layout();
+        resetCounts();
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void resetCounts() {
+        adapter.createCount = 0;
+        adapter.bindCount = 0;
+        layoutManager.layoutCount = 0;
+        notifyCount = 0;
+    }
+
+    /**
+     * 每一项都不能超过基准值,失败时输出所有的实际次数
+     */
+    private void assertWithinBaseline(String scenario) throws Exception {
+        Properties baselines = new Properties();
+        InputStream input = getClass().getResourceAsStream(BASELINES);
+        assertNotNull("missing " + BASELINES, input);
+        try {
+            baselines.load(input);
+        } finally {
+            input.close();
+        }
+        String[] names = {"create", "bind", "layout", "notify"};
+        int[] counts = {adapter.createCount, adapter.bindCount, layoutManager.layoutCount, notifyCount};
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            actual.append(scenario).append('.').append(names[i]).append('=').append(counts[i]).append('\n');
+        }
+        for (int i = 0; i < names.length; i++) {
+            String key = scenario + "." + names[i];
+            String baseline = baselines.getProperty(key);
+            if (baseline == null) {
+                System.out.print(actual);
+                Assume.assumeTrue("no baseline for " + key + ", actual:\n" + actual, false);
+            }
+            assertTrue(key + " exceeds baseline " + baseline + ", actual:\n" + actual, counts[i] <= Integer.parseInt(baseline.trim()));
+        }
+    }
+
+    private class CountingObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            notifyCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyCount++;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyCount++;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyCount++;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            notifyCount++;
+        }
+    }
+
+    private static class CountingLayoutManager extends LinearLayoutManager {
+        int layoutCount;
+
+        CountingLayoutManager(Context context) {
+            super(context, VERTICAL, false);
+        }
+
+        @Override
+        public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+            layoutCount++;
+            super.onLayoutChildren(recycler, state);
+        }
+    }
+
+    private static class CountingAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final List<String> data = new ArrayList<>();
+        int createCount;
+        int bindCount;
+
+        CountingAdapter(int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                data.add("item " + i);
+            }
+        }
+
+        /**
+         * 插入数据,由调用者通知
+         */
+        void insert(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                data.add(position + i, "new " + i);
+            }
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            createCount++;
+            TextView textView = new TextView(parent.getContext());
+            textView.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            bindCount++;
+            ((TextView) holder.itemView).setText(data.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return data.size();
+        }
+    }
+}
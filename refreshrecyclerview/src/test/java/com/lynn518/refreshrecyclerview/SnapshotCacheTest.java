@@ -0,0 +1,135 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 快照的读写,版本校验,读取失败的清理和按使用时间淘汰
+ */
+public class SnapshotCacheTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * 内容为"bad"的数据反序列化时抛出IOException,"crash"抛出RuntimeException
+     */
+    private static final SnapshotCache.Serializer<String> SERIALIZER = new SnapshotCache.Serializer<String>() {
+        @Override
+        public byte[] serialize(String item) throws IOException {
+            return item.getBytes(UTF_8);
+        }
+
+        @Override
+        public String deserialize(byte[] data) throws IOException {
+            String item = new String(data, UTF_8);
+            if (item.equals("bad")) {
+                throw new IOException(item);
+            }
+            if (item.equals("crash")) {
+                throw new IllegalStateException(item);
+            }
+            return item;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad_roundTrip() throws Exception {
+        SnapshotCache<String> cache = create().setMaxItemCount(3);
+        cache.save("feed/main", Arrays.asList("a", "中文", "", "d"), 1, -20);
+        SnapshotCache.Snapshot<String> snapshot = cache.load("feed/main");
+        assertNotNull(snapshot);
+        assertEquals(Arrays.asList("a", "中文", ""), snapshot.getItems());
+        assertEquals(1, snapshot.getPosition());
+        assertEquals(-20, snapshot.getOffset());
+        assertTrue(snapshot.getSavedTime() > 0);
+    }
+
+    @Test
+    public void save_positionBeyondSavedItems() throws Exception {
+        SnapshotCache<String> cache = create().setMaxItemCount(2);
+        cache.save("feed", Arrays.asList("a", "b", "c"), 2, 30);
+        SnapshotCache.Snapshot<String> snapshot = cache.load("feed");
+        assertEquals(1, snapshot.getPosition());
+        assertEquals(0, snapshot.getOffset());
+    }
+
+    @Test
+    public void save_headerVisible_firstItem() throws Exception {
+        SnapshotCache<String> cache = create();
+        //第一个可见的是header,转换后的数据位置小于0
+        cache.save("feed", Arrays.asList("a", "b"), -1, -30);
+        SnapshotCache.Snapshot<String> snapshot = cache.load("feed");
+        assertEquals(0, snapshot.getPosition());
+        assertEquals(0, snapshot.getOffset());
+    }
+
+    @Test
+    public void load_dataVersionMismatch_deleted() throws Exception {
+        create().setDataVersion(1).save("feed", Arrays.asList("a"), 0, 0);
+        SnapshotCache<String> cache = create().setDataVersion(2);
+        assertNull(cache.load("feed"));
+        assertFalse(snapshotFile("feed").exists());
+    }
+
+    @Test
+    public void load_deserializeFailed_deleted() throws Exception {
+        SnapshotCache<String> cache = create();
+        List<String> failures = Arrays.asList("bad", "crash");
+        for (String failure : failures) {
+            cache.save("feed", Arrays.asList("a", failure), 0, 0);
+            try {
+                cache.load("feed");
+                fail("expected IOException for " + failure);
+            } catch (IOException e) {
+                //读取失败
+            }
+            assertFalse(snapshotFile("feed").exists());
+            assertNull(cache.load("feed"));
+        }
+    }
+
+    @Test
+    public void save_overMaxTotalBytes_evictLeastRecentlyUsed() throws Exception {
+        SnapshotCache<String> cache = create();
+        cache.save("a", Arrays.asList("0123456789"), 0, 0);
+        long size = snapshotFile("a").length();
+        cache.setMaxTotalBytes(size * 2 + size / 2);
+        cache.save("b", Arrays.asList("0123456789"), 0, 0);
+        long now = System.currentTimeMillis();
+        assertTrue(snapshotFile("a").setLastModified(now - 20000));
+        assertTrue(snapshotFile("b").setLastModified(now - 10000));
+        //读取会更新使用时间,b变成最久没有使用的
+        assertNotNull(cache.load("a"));
+        cache.save("c", Arrays.asList("0123456789"), 0, 0);
+        assertTrue(snapshotFile("a").exists());
+        assertFalse(snapshotFile("b").exists());
+        assertTrue(snapshotFile("c").exists());
+    }
+
+    @Test
+    public void save_overMaxTotalBytes_keepNewest() throws Exception {
+        SnapshotCache<String> cache = create().setMaxTotalBytes(1);
+        cache.save("a", Arrays.asList("0123456789"), 0, 0);
+        cache.save("b", Arrays.asList("0123456789"), 0, 0);
+        assertFalse(snapshotFile("a").exists());
+        assertNotNull(cache.load("b"));
+    }
+
+    private SnapshotCache<String> create() {
+        return new SnapshotCache<>(new File(folder.getRoot(), "snapshots"), SERIALIZER);
+    }
+
+    private File snapshotFile(String key) {
+        return new File(new File(folder.getRoot(), "snapshots"), key.replace('/', '_') + ".snapshot");
+    }
+}
@@ -0,0 +1,192 @@
+package com.lynn518.refreshrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 合并后的范围通知和逐条通知的结果一致,并且次数更少
+ */
+public class UpdateRangeMergerTest {
+
+    @Test
+    public void insert_consecutiveAtEnd_mergedIntoOneRange() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.insert(10, 1);
+        merger.insert(11, 1);
+        merger.insert(12, 3);
+        assertEquals("[+10x5]", dispatch(merger));
+    }
+
+    @Test
+    public void insert_repeatedlyAtHead_mergedIntoOneRange() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        for (int i = 0; i < 50; i++) {
+            merger.insert(0, 1);
+        }
+        assertEquals("[+0x50]", dispatch(merger));
+    }
+
+    @Test
+    public void remove_forwardAndBackward_mergedIntoOneRange() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.remove(5, 1);
+        merger.remove(5, 2);
+        merger.remove(3, 2);
+        assertEquals("[-3x5]", dispatch(merger));
+    }
+
+    @Test
+    public void removeInsideInsertedRange_shrinksInsert() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.insert(0, 3);
+        merger.remove(1, 1);
+        assertEquals("[+0x2]", dispatch(merger));
+        merger.clear();
+        merger.insert(4, 1);
+        merger.remove(4, 1);
+        assertTrue(merger.isEmpty());
+    }
+
+    @Test
+    public void change_insideInsertedRange_dropped() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.insert(0, 3);
+        merger.change(2, 1, null);
+        assertEquals("[+0x3]", dispatch(merger));
+    }
+
+    @Test
+    public void change_overlappingSamePayload_merged_differentPayload_kept() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.change(4, 2, "like");
+        merger.change(2, 2, "like");
+        merger.change(5, 3, "like");
+        merger.change(8, 1, "comment");
+        assertEquals("[~2x6:like, ~8x1:comment]", dispatch(merger));
+    }
+
+    @Test
+    public void nonAdjacentOperations_keptInOrder() throws Exception {
+        UpdateRangeMerger merger = new UpdateRangeMerger();
+        merger.insert(0, 1);
+        merger.remove(10, 1);
+        merger.insert(3, 1);
+        assertEquals("[+0x1, -10x1, +3x1]", dispatch(merger));
+    }
+
+    /**
+     * 随机操作序列:逐条执行和合并后执行得到的列表必须相同
+     */
+    @Test
+    public void randomOperations_sameResultAsUnmerged() throws Exception {
+        Random random = new Random(518);
+        for (int round = 0; round < 2000; round++) {
+            List<String> expected = initialList(20);
+            List<String> actual = initialList(20);
+            UpdateRangeMerger merger = new UpdateRangeMerger();
+            int operations = 1 + random.nextInt(30);
+            int nextId = 0;
+            int unmerged = 0;
+            for (int i = 0; i < operations; i++) {
+                int size = expected.size();
+                int type = random.nextInt(3);
+                if (type == 0 || size == 0) {
+                    int position = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(3);
+                    for (int j = 0; j < count; j++) {
+                        expected.add(position + j, "new" + nextId++);
+                    }
+                    merger.insert(position, count);
+                } else if (type == 1) {
+                    int position = random.nextInt(size);
+                    int count = 1 + random.nextInt(Math.min(3, size - position));
+                    for (int j = 0; j < count; j++) {
+                        expected.remove(position);
+                    }
+                    merger.remove(position, count);
+                } else {
+                    int position = random.nextInt(size);
+                    int count = 1 + random.nextInt(Math.min(3, size - position));
+                    merger.change(position, count, null);
+                }
+                unmerged++;
+            }
+            assertTrue(merger.size() <= unmerged);
+            final List<String> target = actual;
+            final List<String> reference = expected;
+            merger.dispatchTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    for (int j = 0; j < count; j++) {
+                        target.add(position, "?");
+                    }
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    for (int j = 0; j < count; j++) {
+                        target.remove(position);
+                    }
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    fail();
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    assertTrue(position >= 0 && position + count <= target.size());
+                }
+            });
+            assertEquals(reference.size(), target.size());
+            for (int j = 0; j < target.size(); j++) {
+                //插入的条目内容未知,其余条目必须一一对应
+                if (!"?".equals(target.get(j))) {
+                    assertEquals(reference.get(j), target.get(j));
+                } else {
+                    assertTrue(reference.get(j).startsWith("new"));
+                }
+            }
+        }
+    }
+
+    private static List<String> initialList(int size) {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add("old" + i);
+        }
+        return list;
+    }
+
+    private static String dispatch(UpdateRangeMerger merger) {
+        final List<String> ops = new ArrayList<>();
+        merger.dispatchTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                ops.add("+" + position + "x" + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                ops.add("-" + position + "x" + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                ops.add(">" + fromPosition + "x" + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                ops.add("~" + position + "x" + count + (payload == null ? "" : ":" + payload));
+            }
+        });
+        return ops.toString();
+    }
+}